@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import io.riddles.cryptotrader.data.BinaryChartWriter;
+import io.riddles.cryptotrader.data.Chart;
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.engine.CryptoTraderEngine;
+
+/**
+ * io.riddles.cryptotrader.benchmark.IngestBenchmark - Created on 18-10-26
+ *
+ * Reading CSV and binary data files, and reading candles from the charts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBenchmark {
+
+    @Param({"3", "30"})
+    public int pairCount;
+
+    @Param({"1000", "10000"})
+    public int roundCount;
+
+    private File csvFile;
+    private File binaryFile;
+    private ChartSet charts;
+
+    @Setup
+    public void setup() throws IOException {
+        this.csvFile = File.createTempFile("benchmark", ".csv");
+        this.binaryFile = File.createTempFile("benchmark", ".bin");
+
+        Files.write(this.csvFile.toPath(),
+                SyntheticData.createCsv(this.pairCount, SyntheticData.getCandleCount(this.roundCount)));
+
+        this.charts = CryptoTraderEngine.readDataFile(this.csvFile.getPath(), SyntheticData.INTERVAL);
+        new BinaryChartWriter().write(this.charts, this.binaryFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.csvFile.delete();
+        this.binaryFile.delete();
+    }
+
+    @Benchmark
+    public ChartSet readCsvFile() throws IOException {
+        return CryptoTraderEngine.readDataFile(this.csvFile.getPath(), SyntheticData.INTERVAL);
+    }
+
+    @Benchmark
+    public ChartSet readBinaryFile() throws IOException {
+        return CryptoTraderEngine.readDataFile(this.binaryFile.getPath(), SyntheticData.INTERVAL);
+    }
+
+    @Benchmark
+    public void readCandles(Blackhole blackhole) {
+        for (Chart chart : this.charts.values()) {
+            for (int i = 0; i < chart.size(); i++) {
+                blackhole.consume(chart.getChandleAt(new Date(chart.getTimestamp(i))).getData());
+            }
+        }
+    }
+
+    @Benchmark
+    public void readCandleMessages(Blackhole blackhole) {
+        Chart chart = this.charts.values().iterator().next();
+
+        for (int i = 0; i < chart.size(); i++) {
+            blackhole.consume(this.charts.getCandleMessage(chart.getTimestamp(i)));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.game.move.CryptoTraderMove;
+import io.riddles.cryptotrader.game.move.CryptoTraderMoveDeserializer;
+
+/**
+ * io.riddles.cryptotrader.benchmark.MoveParsingBenchmark - Created on 18-10-26
+ *
+ * Parsing bot output into moves, for valid and invalid input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MoveParsingBenchmark {
+
+    @Param({"3", "30"})
+    public int pairCount;
+
+    private CryptoTraderMoveDeserializer deserializer;
+    private Date date;
+    private String singleOrder;
+    private String multipleOrders;
+
+    @Setup
+    public void setup() {
+        ChartSet charts = SyntheticData.createCharts(this.pairCount, 10);
+
+        this.deserializer = new CryptoTraderMoveDeserializer(charts);
+        this.date = new Date(SyntheticData.FIRST_TIMESTAMP);
+        this.singleOrder = SyntheticData.createBuyMove(this.pairCount, 1);
+        this.multipleOrders = SyntheticData.createBuyMove(this.pairCount, 15);
+    }
+
+    @Benchmark
+    public CryptoTraderMove traversePass() {
+        return this.deserializer.traverse("pass", this.date);
+    }
+
+    @Benchmark
+    public CryptoTraderMove traverseSingleOrder() {
+        return this.deserializer.traverse(this.singleOrder, this.date);
+    }
+
+    @Benchmark
+    public CryptoTraderMove traverseMultipleOrders() {
+        return this.deserializer.traverse(this.multipleOrders, this.date);
+    }
+
+    @Benchmark
+    public CryptoTraderMove traverseInvalid() {
+        return this.deserializer.traverse("buy USDT_C0 wrong", this.date);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import io.riddles.cryptotrader.engine.BacktestResult;
+import io.riddles.cryptotrader.engine.BacktestRunner;
+
+/**
+ * io.riddles.cryptotrader.benchmark.SerializerBenchmark - Created on 18-10-26
+ *
+ * Serializing a played match to the played game JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"3", "30"})
+    public int pairCount;
+
+    @Param({"1000", "10000"})
+    public int roundCount;
+
+    private BacktestResult result;
+
+    @Setup
+    public void setup() {
+        BacktestRunner runner = new BacktestRunner(SyntheticData.createCharts(this.pairCount, this.roundCount));
+        runner.set("givenCandles", SyntheticData.GIVEN_CANDLES);
+
+        this.result = runner.run(SyntheticData.createStrategy());
+    }
+
+    @Benchmark
+    public String traverseToString() {
+        return this.result.getPlayedGame();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
+import io.riddles.cryptotrader.game.move.CryptoTraderMove;
+import io.riddles.cryptotrader.game.move.CryptoTraderMoveDeserializer;
+import io.riddles.cryptotrader.game.state.CryptoTraderPlayerState;
+import io.riddles.javainterface.exception.InvalidMoveException;
+
+/**
+ * io.riddles.cryptotrader.benchmark.SettlementBenchmark - Created on 18-10-26
+ *
+ * Settling moves on the stacks and valuing the stacks, for both ledgers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SettlementBenchmark {
+
+    @Param({"3", "30"})
+    public int pairCount;
+
+    @Param({"decimal", "fixed"})
+    public String ledger;
+
+    private ChartSet charts;
+    private Date date;
+    private CryptoTraderPlayerState initialPlayerState;
+    private CryptoTraderPlayerState tradedPlayerState;
+    private CryptoTraderMove singleOrder;
+    private CryptoTraderMove multipleOrders;
+
+    @Setup
+    public void setup() throws InvalidMoveException {
+        CryptoTraderSettings settings = SyntheticData.createSettings(this.ledger);
+        CryptoTraderMoveDeserializer deserializer;
+
+        this.charts = SyntheticData.createCharts(this.pairCount, 10);
+        this.date = new Date(SyntheticData.FIRST_TIMESTAMP);
+        deserializer = new CryptoTraderMoveDeserializer(this.charts);
+
+        this.singleOrder = deserializer.traverse(SyntheticData.createBuyMove(this.pairCount, 1), this.date);
+        this.multipleOrders = deserializer.traverse(SyntheticData.createBuyMove(this.pairCount, 15), this.date);
+
+        this.initialPlayerState = new CryptoTraderPlayerState(0, this.date, this.charts, settings);
+        this.tradedPlayerState = new CryptoTraderPlayerState(this.initialPlayerState);
+        this.tradedPlayerState.updateStack(this.multipleOrders);
+    }
+
+    @Benchmark
+    public CryptoTraderPlayerState copyPlayerState() {
+        return new CryptoTraderPlayerState(this.tradedPlayerState);
+    }
+
+    @Benchmark
+    public CryptoTraderPlayerState updateStackSingleOrder() throws InvalidMoveException {
+        CryptoTraderPlayerState playerState = new CryptoTraderPlayerState(this.initialPlayerState);
+        playerState.updateStack(this.singleOrder);
+
+        return playerState;
+    }
+
+    @Benchmark
+    public CryptoTraderPlayerState updateStackMultipleOrders() throws InvalidMoveException {
+        CryptoTraderPlayerState playerState = new CryptoTraderPlayerState(this.initialPlayerState);
+        playerState.updateStack(this.multipleOrders);
+
+        return playerState;
+    }
+
+    @Benchmark
+    public double updateStacksValue() {
+        this.tradedPlayerState.updateStacksValue(this.date, this.charts);
+
+        return this.tradedPlayerState.getStackValue();
+    }
+}
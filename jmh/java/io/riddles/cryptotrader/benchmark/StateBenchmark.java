@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.engine.BacktestResult;
+import io.riddles.cryptotrader.engine.BacktestRunner;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
+import io.riddles.cryptotrader.game.player.CryptoTraderPlayer;
+import io.riddles.cryptotrader.game.player.StrategyPlayer;
+import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor;
+import io.riddles.cryptotrader.game.state.CryptoTraderState;
+import io.riddles.javainterface.game.player.PlayerProvider;
+
+/**
+ * io.riddles.cryptotrader.benchmark.StateBenchmark - Created on 18-10-26
+ *
+ * Creating the next state, processing a single round and playing
+ * a complete match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StateBenchmark {
+
+    @Param({"3", "30"})
+    public int pairCount;
+
+    @Param({"1000", "10000"})
+    public int roundCount;
+
+    private BacktestRunner runner;
+    private CryptoTraderProcessor processor;
+    private CryptoTraderState state;
+
+    @Setup
+    public void setup() {
+        ChartSet charts = SyntheticData.createCharts(this.pairCount, this.roundCount);
+        CryptoTraderSettings settings = SyntheticData.createSettings("decimal");
+
+        this.runner = new BacktestRunner(charts);
+        this.runner.set("givenCandles", SyntheticData.GIVEN_CANDLES);
+
+        PlayerProvider<CryptoTraderPlayer> playerProvider = new PlayerProvider<>();
+        playerProvider.add(new StrategyPlayer(0, SyntheticData.createStrategy()));
+
+        BacktestResult result = this.runner.run(SyntheticData.createStrategy());
+        this.processor = new CryptoTraderProcessor(playerProvider, charts, settings);
+        this.state = result.getInitialState();
+    }
+
+    @Benchmark
+    public CryptoTraderState createNextState() {
+        return this.state.createNextState(1);
+    }
+
+    @Benchmark
+    public CryptoTraderState processRound() {
+        return this.processor.createNextState(this.state, 1);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BacktestResult playMatch() {
+        return this.runner.run(SyntheticData.createStrategy());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.data.CsvChartReader;
+import io.riddles.cryptotrader.engine.CryptoTraderEngine;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
+import io.riddles.cryptotrader.game.player.TradingStrategy;
+import io.riddles.javainterface.configuration.Configuration;
+
+/**
+ * io.riddles.cryptotrader.benchmark.SyntheticData - Created on 18-10-26
+ *
+ * Deterministic datasets for the benchmarks. Just over half of the pairs
+ * are USDT pairs, the rest are pairs between two of those symbols, so
+ * every symbol can be valued in USDT.
+ */
+public final class SyntheticData {
+
+    public static final int INTERVAL = 1800;
+    public static final int GIVEN_CANDLES = 10;
+    public static final long FIRST_TIMESTAMP = 1500000000L;
+
+    private SyntheticData() {}
+
+    public static String[] createPairs(int pairCount) {
+        int usdtPairCount = pairCount / 2 + 1;
+        String[] pairs = new String[pairCount];
+
+        for (int i = 0; i < pairCount; i++) {
+            pairs[i] = i < usdtPairCount
+                    ? "USDT_C" + i
+                    : "C" + (i - usdtPairCount) + "_C" + (i - usdtPairCount + 1);
+        }
+
+        return pairs;
+    }
+
+    /**
+     * Returns the number of candles per pair for a match of given length
+     */
+    public static int getCandleCount(int roundCount) {
+        return GIVEN_CANDLES + roundCount + 1;
+    }
+
+    public static byte[] createCsv(int pairCount, int candleCount) {
+        String[] pairs = createPairs(pairCount);
+        Random random = new Random(pairCount * 31L + candleCount);
+        StringBuilder builder = new StringBuilder("pair,date,high,low,open,close,volume\n");
+
+        for (int p = 0; p < pairs.length; p++) {
+            double rate = pairs[p].startsWith("USDT_") ? 100.0 * (p + 1) : 1.0 + p * 0.01;
+
+            for (int i = 0; i < candleCount; i++) {
+                double open = rate;
+                rate *= 1 + (random.nextDouble() - 0.5) * 0.02;
+
+                builder.append(String.format(Locale.ROOT, "%s,%d,%.8f,%.8f,%.8f,%.8f,%.8f\n",
+                        pairs[p],
+                        FIRST_TIMESTAMP + (long) i * INTERVAL,
+                        Math.max(open, rate) * 1.001,
+                        Math.min(open, rate) * 0.999,
+                        open,
+                        rate,
+                        random.nextDouble() * 1000));
+            }
+        }
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static ChartSet createCharts(int pairCount, int roundCount) {
+        byte[] csv = createCsv(pairCount, getCandleCount(roundCount));
+
+        try {
+            return new CsvChartReader(INTERVAL).read(new ByteArrayInputStream(csv));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static CryptoTraderSettings createSettings(String ledger) {
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration();
+        configuration.put("dataFile", "");
+        configuration.put("candleInterval", INTERVAL);
+        configuration.put("givenCandles", GIVEN_CANDLES);
+        configuration.put("ledger", ledger);
+
+        return CryptoTraderSettings.fromConfiguration(configuration);
+    }
+
+    /**
+     * Returns a move with one small buy order for each USDT pair,
+     * up to given number of orders
+     */
+    public static String createBuyMove(int pairCount, int orderCount) {
+        String[] pairs = createPairs(pairCount);
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < pairs.length && i < orderCount && pairs[i].startsWith("USDT_"); i++) {
+            if (builder.length() > 0) builder.append(';');
+            builder.append("buy ").append(pairs[i]).append(" 0.001");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Strategy that buys and sells a little of the first pair in turns
+     */
+    public static TradingStrategy createStrategy() {
+        return new TradingStrategy() {
+            private int round = 0;
+
+            @Override
+            public String onMoveRequest() {
+                this.round++;
+
+                if (this.round % 4 == 1) return "buy USDT_C0 0.002";
+                if (this.round % 4 == 3) return "sell USDT_C0 0.001";
+                return "pass";
+            }
+        };
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+package io.riddles.cryptotrader.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * io.riddles.cryptotrader.data.BinaryChartReader - Created on 18-10-26
+ *
+ * Reads a binary data file written by BinaryChartWriter. Candle values are
+ * not copied onto the heap, the columns of every chart are read directly
+ * from a read-only memory mapping of the file. Engine processes that use
+ * the same data file therefore share it through the OS page cache.
+ */
+public class BinaryChartReader {
+
+    private long interval;
+
+    public BinaryChartReader(long interval) {
+        this.interval = interval;
+    }
+
+    public static boolean isBinaryFile(File file) throws IOException {
+        if (file.length() < 4) return false;
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == BinaryChartWriter.MAGIC;
+        }
+    }
+
+    public ChartSet read(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+
+            ByteBuffer preamble = channel.map(FileChannel.MapMode.READ_ONLY, 0, 12);
+
+            if (preamble.getInt() != BinaryChartWriter.MAGIC) {
+                throw new RuntimeException("Not a binary data file");
+            }
+
+            if (preamble.getInt() != BinaryChartWriter.VERSION) {
+                throw new RuntimeException("Unsupported binary data file version");
+            }
+
+            byte[] headerBytes = new byte[preamble.getInt()];
+            channel.map(FileChannel.MapMode.READ_ONLY, 12, headerBytes.length).get(headerBytes);
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+
+            long fileInterval = header.readLong();
+            if (fileInterval != this.interval) {
+                throw new RuntimeException("Candle timestamps are not according to settings");
+            }
+
+            String candleFormat = header.readUTF();
+            String[] format = candleFormat.split(",");
+            List<String> formatList = Arrays.asList(format);
+            ChartSet charts = new ChartSet(candleFormat, fileInterval);
+
+            int pairCount = header.readInt();
+            long position = BinaryChartWriter.getPaddedLength(12 + headerBytes.length);
+            int size = -1;
+
+            for (int i = 0; i < pairCount; i++) {
+                String pair = header.readUTF();
+                long firstTimestamp = header.readLong();
+                int count = header.readInt();
+
+                if (size >= 0 && count != size) {
+                    throw new RuntimeException("Charts don't have a equal amount of candles.");
+                }
+                size = count;
+
+                long columnLength = count * 8L + BinaryChartWriter.getPaddedLength(count);
+                DecimalColumn[] columns = new DecimalColumn[Chart.FIELDS.length];
+
+                for (int field = 0; field < Chart.FIELDS.length; field++) {
+                    if (!formatList.contains(Chart.FIELDS[field])) continue;
+
+                    LongBuffer unscaledValues = map(channel, position, count * 8L).asLongBuffer();
+                    ByteBuffer scales = map(channel, position + count * 8L, count);
+
+                    columns[field] = new DecimalColumn(unscaledValues, scales);
+                    position += columnLength;
+                }
+
+                charts.put(pair, new Chart(
+                        pair, format, fileInterval, firstTimestamp, columns, new HashMap<>()));
+            }
+            charts.cacheCandleMessages();
+            charts.createRegistry();
+
+            return charts;
+        }
+    }
+
+    /**
+     * Maps a region of the file, which can't be larger than 2GB
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new RuntimeException(String.format(
+                    "Column of %d bytes at %d is too large to map", length, position));
+        }
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+package io.riddles.cryptotrader.data;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * io.riddles.cryptotrader.data.BinaryChartWriter - Created on 18-10-26
+ *
+ * Writes a ChartSet to the binary data file format that BinaryChartReader
+ * memory-maps. Can be run directly to convert a CSV data file:
+ *
+ *     java -cp engine.jar io.riddles.cryptotrader.data.BinaryChartWriter \
+ *         data.csv data.bin [candleInterval]
+ *
+ * File layout (big-endian):
+ *     int    magic "CTBD"
+ *     int    version
+ *     int    header length
+ *     header long interval, UTF candle format, int pair count and per pair:
+ *            UTF pair, long first timestamp, int candle count
+ *     padding to a multiple of 8 bytes
+ *     data   per pair, per field of Chart.FIELDS that is in the format:
+ *            count longs with the unscaled values, count bytes with the
+ *            scales, padded to a multiple of 8 bytes
+ */
+public class BinaryChartWriter {
+
+    static final int MAGIC = 0x43544244; // "CTBD"
+    static final int VERSION = 1;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BinaryChartWriter <input.csv> <output.bin> [candleInterval]");
+            System.exit(1);
+        }
+
+        long interval = args.length > 2 ? Long.parseLong(args[2]) : 1800;
+
+        ChartSet charts = new CsvChartReader(interval).read(new File(args[0]));
+
+        new BinaryChartWriter().write(charts, new File(args[1]));
+    }
+
+    public void write(ChartSet charts, File file) throws IOException {
+        List<String> format = Arrays.asList(charts.getCandleFormat().split(","));
+
+        for (Chart chart : charts.values()) {
+            if (chart.hasExtraColumns()) {
+                throw new RuntimeException(String.format(
+                        "Binary data files only support the columns pair, date and %s",
+                        String.join(", ", Chart.FIELDS)));
+            }
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+
+        header.writeLong(charts.getInterval());
+        header.writeUTF(charts.getCandleFormat());
+        header.writeInt(charts.size());
+
+        for (Chart chart : charts.values()) {
+            header.writeUTF(chart.getPair());
+            header.writeLong(chart.getTimestamp(0));
+            header.writeInt(chart.size());
+        }
+
+        header.flush();
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            writePadding(out, 12 + headerBytes.size());
+
+            for (Chart chart : charts.values()) {
+                for (String field : Chart.FIELDS) {
+                    if (!format.contains(field)) continue;
+
+                    DecimalColumn column = chart.getColumn(field);
+
+                    for (int i = 0; i < chart.size(); i++) {
+                        out.writeLong(column.getUnscaledValue(i));
+                    }
+
+                    for (int i = 0; i < chart.size(); i++) {
+                        out.writeByte(column.getScale(i));
+                    }
+
+                    writePadding(out, chart.size());
+                }
+            }
+        }
+    }
+
+    static long getPaddedLength(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    private void writePadding(DataOutputStream out, long length) throws IOException {
+        for (long i = length; i < getPaddedLength(length); i++) {
+            out.writeByte(0);
+        }
+    }
+}
@@ -26,61 +26,38 @@ import java.util.HashMap;
 /**
  * io.riddles.cryptotrader.data.Candle - Created on 9-2-18
  *
- * [description]
+ * Lightweight view of a single candle in a Chart. Doesn't hold any
+ * data itself, all values are read from the chart's columns.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class Candle {
 
-    private String raw;
-    private String pair;
-    private Date date;
-    private HashMap<String, BigDecimal> data;
+    private Chart chart;
+    private int index;
 
-    public Candle(String[] format, String input) {
-        this.raw = input;
-        this.data = new HashMap<>();
-        String[] values = input.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-
-        for (int i = 0; i < format.length; i++) {
-            String key = format[i];
-            String value = values[i];
-
-            switch (key) {
-                case "date":
-                    this.date = new Date(Long.parseLong(value));
-                    break;
-                case "pair":
-                    this.pair = value;
-                    break;
-                case "high":
-                case "low":
-                case "open":
-                case "close":
-                case "volume":
-                    this.data.put(key, new BigDecimal(value));
-                    break;
-            }
-        }
+    public Candle(Chart chart, int index) {
+        this.chart = chart;
+        this.index = index;
     }
 
     public String toString() {
-        return this.raw;
+        return this.chart.getCandleString(this.index);
     }
 
     public Date getDate() {
-        return this.date;
+        return new Date(this.chart.getTimestamp(this.index));
     }
 
     public String getPair() {
-        return this.pair;
+        return this.chart.getPair();
     }
 
     public BigDecimal getRate() {
-        return this.data.get("close");
+        return this.chart.getRate(this.index);
     }
 
     public HashMap<String, BigDecimal> getData() {
-        return this.data;
+        return this.chart.getData(this.index);
     }
 }
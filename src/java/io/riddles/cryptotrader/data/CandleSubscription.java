@@ -0,0 +1,294 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * io.riddles.cryptotrader.data.CandleSubscription - Created on 18-10-26
+ *
+ * A selection of pairs and candle format keys that bots receive. The
+ * next_candles message for each timestamp is rendered on first use and
+ * kept, so sending candles again is only a lookup, while timestamps that
+ * no match plays are never rendered.
+ *
+ * The pair and date keys are always included. Pairs and keys are kept in
+ * the order of the chart set and the candle format, whatever order they
+ * are subscribed in.
+ *
+ * A subscription can also send candles of multiples of the interval, e.g.
+ * 4 hour candles next to 30 minute candles, each one in a
+ * next_candles_[interval] update together with its last candle.
+ */
+public class CandleSubscription {
+
+    private Chart[] charts;
+    private int[] formatIndices;
+    private String candleFormat;
+    private Chart firstChart;
+    private String[] candleMessages;
+    private long[] aggregationIntervals;
+    private String[] aggregationTypes;
+    private CandleSubscription[] aggregations;
+
+    /**
+     * Creates a subscription to given pairs and keys, empty lists
+     * subscribe to all of them
+     */
+    public CandleSubscription(ChartSet chartSet, List<String> pairs, List<String> keys) {
+        ArrayList<Chart> charts = new ArrayList<>(chartSet.values());
+
+        if (charts.isEmpty()) {
+            throw new RuntimeException("Data file doesn't contain any candles");
+        }
+
+        for (String pair : pairs) {
+            if (!chartSet.containsKey(pair)) {
+                throw new RuntimeException(String.format("Can't subscribe to unknown pair '%s'", pair));
+            }
+        }
+
+        String[] format = charts.get(0).getFormat();
+        List<String> formatList = Arrays.asList(format);
+
+        for (String key : keys) {
+            if (!formatList.contains(key)) {
+                throw new RuntimeException(String.format("Can't subscribe to unknown key '%s'", key));
+            }
+        }
+
+        if (!pairs.isEmpty()) {
+            charts.removeIf(chart -> !pairs.contains(chart.getPair()));
+        }
+
+        ArrayList<Integer> formatIndices = new ArrayList<>();
+        for (int i = 0; i < format.length; i++) {
+            if (keys.isEmpty() || keys.contains(format[i])
+                    || format[i].equals("pair") || format[i].equals("date")) {
+                formatIndices.add(i);
+            }
+        }
+
+        this.charts = charts.toArray(new Chart[0]);
+        this.formatIndices = formatIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.candleFormat = String.join(",", formatIndices.stream()
+                .map(i -> format[i])
+                .toArray(String[]::new));
+        this.firstChart = charts.get(0);
+        this.candleMessages = new String[this.firstChart.size()];
+        checkCandles();
+        this.aggregationIntervals = new long[0];
+        this.aggregationTypes = new String[0];
+        this.aggregations = new CandleSubscription[0];
+    }
+
+    /**
+     * Creates a subscription that also sends candles of given multiples
+     * of the interval, with the same pairs and keys
+     */
+    public CandleSubscription(ChartSet chartSet, List<String> pairs, List<String> keys,
+                              List<Integer> aggregations) {
+        this(chartSet, pairs, keys);
+
+        this.aggregationIntervals = new long[aggregations.size()];
+        this.aggregationTypes = new String[aggregations.size()];
+        this.aggregations = new CandleSubscription[aggregations.size()];
+
+        for (int i = 0; i < aggregations.size(); i++) {
+            ChartSet aggregation = chartSet.getAggregation(aggregations.get(i));
+            List<String> format = Arrays.asList(aggregation.getCandleFormat().split(","));
+            ArrayList<String> aggregationKeys = new ArrayList<>(keys);
+
+            // Extra columns are not aggregated, subscribe to date so keys don't become empty
+            aggregationKeys.removeIf(key -> !format.contains(key));
+            if (!keys.isEmpty() && aggregationKeys.isEmpty()) {
+                aggregationKeys.add("date");
+            }
+
+            this.aggregationIntervals[i] = aggregation.getInterval();
+            this.aggregationTypes[i] = "next_candles_" + aggregation.getInterval();
+            this.aggregations[i] = aggregation.getSubscription(pairs, aggregationKeys);
+        }
+    }
+
+    /**
+     * Returns the candle_format setting for this subscription
+     */
+    public String getCandleFormat() {
+        return this.candleFormat;
+    }
+
+    /**
+     * Returns the next_candles message for given timestamp, or null if
+     * there are no candles at that time
+     */
+    public String getCandleMessage(long timestamp) {
+        int index = this.firstChart.getIndex(timestamp);
+
+        if (index < 0) {
+            return null;
+        }
+
+        // Matches that render the same message at once each store an equal string
+        String candleMessage = this.candleMessages[index];
+        if (candleMessage == null) {
+            candleMessage = renderCandleMessage(timestamp);
+            this.candleMessages[index] = candleMessage;
+        }
+
+        return candleMessage;
+    }
+
+    /**
+     * Returns the intervals of the aggregated candles, empty if there are none
+     */
+    public long[] getAggregationIntervals() {
+        return this.aggregationIntervals;
+    }
+
+    /**
+     * Returns a new list with the next_candles update for given timestamp,
+     * followed by the aggregated candles that end with it
+     */
+    public List<CandleUpdate> getCandleUpdates(long timestamp) {
+        ArrayList<CandleUpdate> updates = new ArrayList<>(1);
+        updates.add(new CandleUpdate("next_candles", getCandleMessage(timestamp)));
+        addAggregatedUpdates(timestamp, updates);
+
+        return updates;
+    }
+
+    /**
+     * Returns the updates with the aggregated candles that end with the
+     * candle at given timestamp, empty if none do
+     */
+    public List<CandleUpdate> getAggregatedUpdates(long timestamp) {
+        ArrayList<CandleUpdate> updates = new ArrayList<>(0);
+        addAggregatedUpdates(timestamp, updates);
+
+        return updates;
+    }
+
+    /**
+     * Returns the candles from firstTimestamp up to and including
+     * lastTimestamp as one message, in the same format as the
+     * next_candles messages of those timestamps joined by ';'
+     */
+    public String getHistoryRows(long firstTimestamp, long lastTimestamp) {
+        StringBuilder builder = new StringBuilder();
+        long interval = this.firstChart.getInterval();
+
+        for (long timestamp = firstTimestamp; timestamp <= lastTimestamp; timestamp += interval) {
+            if (builder.length() > 0) builder.append(';');
+            builder.append(getCandleMessage(timestamp));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the candles from firstTimestamp up to and including
+     * lastTimestamp as one message with a column per key. Pairs are
+     * separated by ';' and start with the pair name, followed by one
+     * column for every other key of the candle format, separated by '|'.
+     * The values in a column are separated by ','.
+     */
+    public String getHistoryColumns(long firstTimestamp, long lastTimestamp) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Chart chart : this.charts) {
+            int firstIndex = chart.getIndex(firstTimestamp);
+            int lastIndex = chart.getIndex(lastTimestamp);
+            String[] format = chart.getFormat();
+
+            if (firstIndex < 0 || lastIndex < 0) {
+                throw new RuntimeException(String.format(
+                        "Chart %s doesn't have candles from %d to %d",
+                        chart.getPair(), firstTimestamp, lastTimestamp));
+            }
+
+            if (builder.length() > 0) builder.append(';');
+            builder.append(chart.getPair());
+
+            for (int key : this.formatIndices) {
+                if (format[key].equals("pair")) continue;
+
+                builder.append('|');
+
+                for (int index = firstIndex; index <= lastIndex; index++) {
+                    if (index > firstIndex) builder.append(',');
+                    builder.append(chart.getValueString(key, index));
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private void addAggregatedUpdates(long timestamp, List<CandleUpdate> updates) {
+        long endTimestamp = timestamp + this.firstChart.getInterval();
+
+        for (int i = 0; i < this.aggregations.length; i++) {
+            long interval = this.aggregationIntervals[i];
+
+            if (Math.floorMod(endTimestamp, interval) == 0) {
+                updates.add(new CandleUpdate(this.aggregationTypes[i],
+                        this.aggregations[i].getCandleMessage(endTimestamp - interval)));
+            }
+        }
+    }
+
+    /**
+     * Candles are found by their offset from the first candle, so every
+     * chart needs the first and the last timestamp of the first chart
+     */
+    private void checkCandles() {
+        long firstTimestamp = this.firstChart.getTimestamp(0);
+        long lastTimestamp = this.firstChart.getTimestamp(this.firstChart.size() - 1);
+
+        for (Chart chart : this.charts) {
+            for (long timestamp : new long[] {firstTimestamp, lastTimestamp}) {
+                if (chart.getIndex(timestamp) < 0) {
+                    throw new RuntimeException(String.format(
+                            "Chart %s doesn't have a candle at %d", chart.getPair(), timestamp));
+                }
+            }
+        }
+    }
+
+    private String renderCandleMessage(long timestamp) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Chart chart : this.charts) {
+            int chartIndex = chart.getIndex(timestamp);
+
+            if (builder.length() > 0) builder.append(';');
+
+            for (int i = 0; i < this.formatIndices.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(chart.getValueString(this.formatIndices[i], chartIndex));
+            }
+        }
+
+        return builder.toString();
+    }
+}
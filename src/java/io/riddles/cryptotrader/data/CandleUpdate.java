@@ -0,0 +1,44 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+/**
+ * io.riddles.cryptotrader.data.CandleUpdate - Created on 18-10-26
+ *
+ * An update with candles that is sent to the bots, e.g. next_candles.
+ */
+public class CandleUpdate {
+
+    private String type;
+    private String message;
+
+    public CandleUpdate(String type, String message) {
+        this.type = type;
+        this.message = message;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+}
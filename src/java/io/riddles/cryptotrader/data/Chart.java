@@ -19,37 +19,387 @@
 
 package io.riddles.cryptotrader.data;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 
 /**
  * io.riddles.cryptotrader.data.Chart - Created on 9-2-18
  *
- * [description]
+ * Columnar storage of all candles of one trading pair. Candles are stored
+ * by index, where index = (timestamp - firstTimestamp) / interval, so
+ * lookups don't need a map. Candles can be added in any order, but
+ * sortCandles has to be called before the chart can be read. Charts created
+ * by the data file readers are already sorted.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class Chart {
 
-    private HashMap<Long, Candle> candles;
+    public static final String[] FIELDS = {"high", "low", "open", "close", "volume"};
+    static final int HIGH = 0;
+    static final int LOW = 1;
+    static final int OPEN = 2;
+    static final int CLOSE = 3;
+    static final int VOLUME = 4;
 
-    public Chart() {
-        this.candles = new HashMap<>();
+    private String pair;
+    private String[] format;
+    private long interval;
+    private long firstTimestamp;
+    private int size;
+    private long[] timestamps; // Only used while loading
+    private DecimalColumn[] columns;
+    private HashMap<String, ArrayList<String>> extraColumns;
+    private volatile RangeIndex rangeIndex; // Built on first use
+
+    public Chart(String pair, String[] format, long interval) {
+        this.pair = pair;
+        this.format = format;
+        this.interval = interval;
+        this.size = 0;
+        this.timestamps = new long[16];
+        this.columns = new DecimalColumn[FIELDS.length];
+        this.extraColumns = new HashMap<>();
+
+        for (String key : format) {
+            int field = getFieldIndex(key);
+
+            if (field >= 0) {
+                this.columns[field] = new DecimalColumn(16);
+            } else if (!key.equals("pair") && !key.equals("date")) {
+                this.extraColumns.put(key, new ArrayList<>());
+            }
+        }
     }
 
-    public void addCandle(Candle candle) {
-        if (this.candles.containsKey(candle.getDate().getTime())) {
-            throw new RuntimeException("Can't have two candles with the same timestamp");
+    Chart(String pair, String[] format, long interval, long firstTimestamp,
+          DecimalColumn[] columns, HashMap<String, ArrayList<String>> extraColumns) {
+        this.pair = pair;
+        this.format = format;
+        this.interval = interval;
+        this.firstTimestamp = firstTimestamp;
+        this.columns = columns;
+        this.extraColumns = extraColumns;
+        this.size = Arrays.stream(columns)
+                .filter(column -> column != null)
+                .mapToInt(DecimalColumn::size)
+                .findFirst()
+                .orElse(0);
+    }
+
+    public void addCandle(String[] values) {
+        if (this.timestamps == null) {
+            throw new RuntimeException("Can't add candles to a chart that is already sorted");
+        }
+
+        if (this.size == this.timestamps.length) {
+            this.timestamps = Arrays.copyOf(this.timestamps, this.size * 2);
+        }
+
+        for (int i = 0; i < this.format.length; i++) {
+            String key = this.format[i];
+            String value = values[i];
+            int field = getFieldIndex(key);
+
+            if (key.equals("date")) {
+                this.timestamps[this.size] = Long.parseLong(value);
+            } else if (field >= 0) {
+                this.columns[field].add(new BigDecimal(value));
+            } else if (!key.equals("pair")) {
+                this.extraColumns.get(key).add(value);
+            }
         }
 
-        this.candles.put(candle.getDate().getTime(), candle);
+        this.size++;
+    }
+
+    /**
+     * Puts the candles in chronological order and verifies that they
+     * are exactly one interval apart, after which the chart can be read
+     */
+    public void sortCandles() {
+        int[] order = getSortedOrder();
+
+        if (order != null) {
+            long[] timestamps = new long[this.size];
+            for (int i = 0; i < this.size; i++) {
+                timestamps[i] = this.timestamps[order[i]];
+            }
+            this.timestamps = timestamps;
+
+            for (DecimalColumn column : this.columns) {
+                if (column != null) column.reorder(order);
+            }
+
+            this.extraColumns.replaceAll((key, values) -> {
+                ArrayList<String> sortedValues = new ArrayList<>(this.size);
+                for (int i = 0; i < this.size; i++) {
+                    sortedValues.add(values.get(order[i]));
+                }
+                return sortedValues;
+            });
+        }
+
+        for (int i = 1; i < this.size; i++) {
+            if (this.timestamps[i] == this.timestamps[i - 1]) {
+                throw new RuntimeException("Can't have two candles with the same timestamp");
+            }
+
+            if (this.timestamps[i] != this.timestamps[i - 1] + this.interval) {
+                throw new RuntimeException("Candle timestamps are not according to settings");
+            }
+        }
+
+        for (DecimalColumn column : this.columns) {
+            if (column != null) column.trim();
+        }
+
+        this.firstTimestamp = this.size > 0 ? this.timestamps[0] : 0;
+        this.timestamps = null;
     }
 
     public Candle getChandleAt(Date date) {
-        return this.candles.get(date.getTime());
+        int index = getIndex(date.getTime());
+
+        if (index < 0) {
+            return null;
+        }
+
+        return new Candle(this, index);
+    }
+
+    public int getIndex(long timestamp) {
+        long offset = timestamp - this.firstTimestamp;
+
+        if (offset < 0 || offset % this.interval != 0 || offset / this.interval >= this.size) {
+            return -1;
+        }
+
+        return (int) (offset / this.interval);
+    }
+
+    public String getPair() {
+        return this.pair;
+    }
+
+    public long getInterval() {
+        return this.interval;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public long getTimestamp(int index) {
+        return this.firstTimestamp + index * this.interval;
+    }
+
+    public Date getFirstDate() {
+        return new Date(getTimestamp(0));
+    }
+
+    public Date getLastDate() {
+        return new Date(getTimestamp(this.size - 1));
+    }
+
+    public String[] getFormat() {
+        return this.format;
+    }
+
+    public DecimalColumn getColumn(String field) {
+        int index = getFieldIndex(field);
+
+        return index >= 0 ? this.columns[index] : null;
+    }
+
+    /**
+     * Returns the column of given field by its index in FIELDS,
+     * null if it isn't in the candle format
+     */
+    DecimalColumn getColumn(int field) {
+        return this.columns[field];
+    }
+
+    public boolean hasExtraColumns() {
+        return !this.extraColumns.isEmpty();
+    }
+
+    public BigDecimal getRate(int index) {
+        return this.columns[CLOSE].get(index);
     }
 
-    public HashMap<Long, Candle> getCandles() {
-        return this.candles;
+    public long getRateUnits(int index) {
+        return this.columns[CLOSE].getUnits(index);
+    }
+
+    public HashMap<String, BigDecimal> getData(int index) {
+        HashMap<String, BigDecimal> data = new HashMap<>();
+
+        for (String key : this.format) {
+            int field = getFieldIndex(key);
+
+            if (field >= 0) {
+                data.put(key, this.columns[field].get(index));
+            }
+        }
+
+        return data;
+    }
+
+    public String getCandleString(int index) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < this.format.length; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(getValueString(i, index));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the value of the candle at given index for the
+     * key at given position in the candle format
+     */
+    public String getValueString(int formatIndex, int index) {
+        String key = this.format[formatIndex];
+        int field = getFieldIndex(key);
+
+        if (key.equals("pair")) {
+            return this.pair;
+        } else if (key.equals("date")) {
+            return Long.toString(getTimestamp(index));
+        } else if (field >= 0) {
+            return this.columns[field].get(index).toPlainString();
+        }
+
+        return this.extraColumns.get(key).get(index);
+    }
+
+    /**
+     * Returns a chart with candles of given multiple of the interval. The
+     * candles start at multiples of the new interval, so the first and
+     * last one can consist of fewer candles. Opens are the first open,
+     * closes the last close, highs the highest high, lows the lowest low
+     * and volumes the sum of the volumes. Extra columns are left out.
+     */
+    public Chart aggregate(int multiple) {
+        if (multiple < 1) {
+            throw new RuntimeException("Candles can only be aggregated by a positive multiple");
+        }
+
+        long interval = this.interval * multiple;
+        long firstTimestamp = Math.floorDiv(this.firstTimestamp, interval) * interval;
+        int size = this.size > 0
+                ? (int) ((getTimestamp(this.size - 1) - firstTimestamp) / interval) + 1
+                : 0;
+
+        DecimalColumn[] columns = new DecimalColumn[FIELDS.length];
+        for (int field = 0; field < FIELDS.length; field++) {
+            if (this.columns[field] != null) {
+                columns[field] = new DecimalColumn(size);
+            }
+        }
+
+        int index = 0;
+        for (int candle = 0; candle < size; candle++) {
+            long endTimestamp = firstTimestamp + (candle + 1) * interval;
+            int firstIndex = index;
+
+            while (index < this.size && getTimestamp(index) < endTimestamp) {
+                index++;
+            }
+
+            aggregateCandle(columns, firstIndex, index - 1);
+        }
+
+        for (DecimalColumn column : columns) {
+            if (column != null) column.trim();
+        }
+
+        String[] format = Arrays.stream(this.format)
+                .filter(key -> key.equals("pair") || key.equals("date") || getFieldIndex(key) >= 0)
+                .toArray(String[]::new);
+
+        return new Chart(this.pair, format, interval, firstTimestamp, columns, new HashMap<>());
+    }
+
+    /**
+     * Returns the index for range queries on this chart, built on first use
+     */
+    public RangeIndex getRangeIndex() {
+        RangeIndex rangeIndex = this.rangeIndex;
+
+        if (rangeIndex == null) {
+            synchronized (this) {
+                if (this.rangeIndex == null) {
+                    this.rangeIndex = new RangeIndex(this);
+                }
+                rangeIndex = this.rangeIndex;
+            }
+        }
+
+        return rangeIndex;
+    }
+
+    private void aggregateCandle(DecimalColumn[] columns, int firstIndex, int lastIndex) {
+        for (int field = 0; field < FIELDS.length; field++) {
+            DecimalColumn column = this.columns[field];
+
+            if (column == null) continue;
+
+            if (field == OPEN) {
+                columns[field].add(column.get(firstIndex));
+            } else if (field == CLOSE) {
+                columns[field].add(column.get(lastIndex));
+            } else if (field == VOLUME) {
+                BigDecimal volume = BigDecimal.ZERO;
+                for (int i = firstIndex; i <= lastIndex; i++) {
+                    volume = volume.add(column.get(i));
+                }
+                columns[field].add(volume);
+            } else {
+                int extremeIndex = firstIndex;
+                for (int i = firstIndex + 1; i <= lastIndex; i++) {
+                    int comparison = column.compare(i, extremeIndex);
+
+                    if (field == HIGH ? comparison > 0 : comparison < 0) {
+                        extremeIndex = i;
+                    }
+                }
+                columns[field].add(column.get(extremeIndex));
+            }
+        }
+    }
+
+    private int[] getSortedOrder() {
+        boolean isSorted = true;
+        for (int i = 1; i < this.size && isSorted; i++) {
+            isSorted = this.timestamps[i - 1] <= this.timestamps[i];
+        }
+
+        if (isSorted) {
+            return null;
+        }
+
+        Integer[] indices = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, Comparator.comparingLong(i -> this.timestamps[i]));
+
+        return Arrays.stream(indices).mapToInt(Integer::intValue).toArray();
+    }
+
+    static int getFieldIndex(String key) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(key)) return i;
+        }
+
+        return -1;
     }
 }
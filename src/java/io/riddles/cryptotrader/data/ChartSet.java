@@ -0,0 +1,229 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+package io.riddles.cryptotrader.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * io.riddles.cryptotrader.data.ChartSet - Created on 18-10-26
+ *
+ * All charts of a dataset by pair, together with the candle format
+ * and interval they were read with.
+ *
+ * The next_candles message for each timestamp is built on first use, once
+ * cacheCandleMessages is called after all charts are added, and is shared
+ * by all players and rounds. Subscriptions to fewer pairs or keys, charts of
+ * longer intervals, indicators and the valuation table are built once on
+ * first use. The symbol registry is created once by createRegistry in the
+ * same way. The set shouldn't be modified after that.
+ */
+public class ChartSet extends HashMap<String, Chart> {
+
+    private static final long serialVersionUID = 1L;
+
+    private String candleFormat;
+    private long interval;
+    private Chart firstChart;
+    private CandleSubscription allCandles;
+    private ConcurrentHashMap<String, CandleSubscription> subscriptions;
+    private ConcurrentHashMap<Integer, ChartSet> aggregations;
+    private ConcurrentHashMap<String, IndicatorSet> indicatorSets;
+    private SymbolRegistry registry;
+    private volatile ValuationTable valuation;
+
+    public ChartSet(String candleFormat, long interval) {
+        this.candleFormat = candleFormat;
+        this.interval = interval;
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.aggregations = new ConcurrentHashMap<>();
+        this.indicatorSets = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates the cache of next_candles messages with all candles of all
+     * charts, in the iteration order of this map. Messages are rendered
+     * when they are first requested.
+     */
+    public void cacheCandleMessages() {
+        this.allCandles = new CandleSubscription(this, new ArrayList<>(), new ArrayList<>());
+        this.firstChart = values().iterator().next();
+    }
+
+    /**
+     * Returns the next_candles message for given timestamp, or null if
+     * there are no candles at that time
+     */
+    public String getCandleMessage(long timestamp) {
+        if (this.allCandles == null) {
+            throw new RuntimeException("Candle messages are not cached yet");
+        }
+
+        return this.allCandles.getCandleMessage(timestamp);
+    }
+
+    /**
+     * Returns the subscription to given pairs and candle format keys, empty
+     * lists subscribe to all of them. Subscriptions are rendered once and
+     * shared by all matches that use the same one.
+     */
+    public CandleSubscription getSubscription(List<String> pairs, List<String> keys) {
+        return getSubscription(pairs, keys, new ArrayList<>());
+    }
+
+    /**
+     * Returns the subscription to given pairs and candle format keys, that
+     * also sends candles of given multiples of the interval
+     */
+    public CandleSubscription getSubscription(List<String> pairs, List<String> keys,
+                                              List<Integer> aggregations) {
+        if (this.allCandles == null) {
+            throw new RuntimeException("Candle messages are not cached yet");
+        }
+
+        if (pairs.isEmpty() && keys.isEmpty() && aggregations.isEmpty()) {
+            return this.allCandles;
+        }
+
+        ArrayList<String> sortedPairs = new ArrayList<>(pairs);
+        ArrayList<String> sortedKeys = new ArrayList<>(keys);
+        ArrayList<Integer> sortedAggregations = new ArrayList<>(aggregations);
+        Collections.sort(sortedPairs);
+        Collections.sort(sortedKeys);
+        Collections.sort(sortedAggregations);
+        String name = String.join(",", sortedPairs) + "|" + String.join(",", sortedKeys)
+                + "|" + sortedAggregations;
+
+        return this.subscriptions.computeIfAbsent(name, key -> new CandleSubscription(
+                this, sortedPairs, sortedKeys, sortedAggregations));
+    }
+
+    /**
+     * Returns the indicators with given names for given pairs, in the order
+     * of the names, an empty list of pairs means all of them
+     */
+    public IndicatorSet getIndicators(List<String> pairs, List<String> indicators) {
+        ArrayList<String> sortedPairs = new ArrayList<>(pairs);
+        Collections.sort(sortedPairs);
+        String name = String.join(",", sortedPairs) + "|" + String.join(",", indicators).toLowerCase();
+
+        return this.indicatorSets.computeIfAbsent(
+                name, key -> new IndicatorSet(this, sortedPairs, indicators));
+    }
+
+    /**
+     * Returns the charts with candles of given multiple of the interval,
+     * built once on first use. Like a pyramid, each one is built from the
+     * longest interval already built that it's a multiple of, e.g. daily
+     * candles from 4 hour candles instead of from the original candles.
+     */
+    public ChartSet getAggregation(int multiple) {
+        if (multiple <= 1) {
+            throw new RuntimeException("Candle aggregations should be greater than 1");
+        }
+
+        return this.aggregations.computeIfAbsent(multiple, this::aggregate);
+    }
+
+    /**
+     * Returns the candles between given timestamps, which are the same
+     * for all charts. Negative timestamps mean no limit on that side.
+     */
+    public ChartWindow getWindow(long startTimestamp, long endTimestamp) {
+        if (this.firstChart == null) {
+            throw new RuntimeException("Candle messages are not cached yet");
+        }
+
+        return new ChartWindow(this.firstChart, startTimestamp, endTimestamp);
+    }
+
+    private ChartSet aggregate(int multiple) {
+        ChartSet source = this;
+        int sourceMultiple = 1;
+
+        for (Map.Entry<Integer, ChartSet> entry : this.aggregations.entrySet()) {
+            int level = entry.getKey();
+
+            if (level > sourceMultiple && multiple % level == 0) {
+                source = entry.getValue();
+                sourceMultiple = level;
+            }
+        }
+
+        String candleFormat = String.join(",", Arrays.stream(this.candleFormat.split(","))
+                .filter(key -> key.equals("pair") || key.equals("date") || Chart.getFieldIndex(key) >= 0)
+                .toArray(String[]::new));
+        ChartSet charts = new ChartSet(candleFormat, this.interval * multiple);
+
+        for (String pair : keySet()) {
+            charts.put(pair, source.get(pair).aggregate(multiple / sourceMultiple));
+        }
+
+        charts.cacheCandleMessages();
+
+        return charts;
+    }
+
+    /**
+     * Assigns ids to all pairs and symbols, in the iteration order of this map
+     */
+    public void createRegistry() {
+        this.registry = new SymbolRegistry(this);
+    }
+
+    public SymbolRegistry getRegistry() {
+        if (this.registry == null) {
+            throw new RuntimeException("Symbol registry is not created yet");
+        }
+
+        return this.registry;
+    }
+
+    /**
+     * Returns the USDT prices of all symbols at every timestamp, built
+     * on first use
+     */
+    public ValuationTable getValuation() {
+        ValuationTable valuation = this.valuation;
+
+        if (valuation == null) {
+            synchronized (this) {
+                if (this.valuation == null) {
+                    this.valuation = new ValuationTable(this);
+                }
+                valuation = this.valuation;
+            }
+        }
+
+        return valuation;
+    }
+
+    public String getCandleFormat() {
+        return this.candleFormat;
+    }
+
+    public long getInterval() {
+        return this.interval;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.util.Date;
+
+/**
+ * io.riddles.cryptotrader.data.ChartWindow - Created on 18-10-26
+ *
+ * The range of candles a match is played on. All charts of a set have
+ * candles at the same timestamps, so a window is just a first and last
+ * timestamp and doesn't copy any data.
+ */
+public class ChartWindow {
+
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long interval;
+
+    /**
+     * Creates the window of given chart from the first candle at or after
+     * startTimestamp up to the last candle at or before endTimestamp.
+     * Negative timestamps mean the window isn't limited on that side.
+     */
+    public ChartWindow(Chart chart, long startTimestamp, long endTimestamp) {
+        if (chart.size() == 0) {
+            throw new RuntimeException("Chart doesn't contain any candles");
+        }
+
+        long interval = chart.getInterval();
+        long first = chart.getTimestamp(0);
+        long last = chart.getTimestamp(chart.size() - 1);
+
+        if (startTimestamp > first) {
+            first += Math.floorDiv(startTimestamp - first + interval - 1, interval) * interval;
+        }
+
+        if (endTimestamp >= 0 && endTimestamp < last) {
+            last -= Math.floorDiv(last - endTimestamp + interval - 1, interval) * interval;
+        }
+
+        if (first > last) {
+            throw new RuntimeException(String.format(
+                    "There are no candles between %d and %d", startTimestamp, endTimestamp));
+        }
+
+        this.firstTimestamp = first;
+        this.lastTimestamp = last;
+        this.interval = interval;
+    }
+
+    public long getFirstTimestamp() {
+        return this.firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return this.lastTimestamp;
+    }
+
+    public Date getFirstDate() {
+        return new Date(this.firstTimestamp);
+    }
+
+    public Date getLastDate() {
+        return new Date(this.lastTimestamp);
+    }
+
+    /**
+     * Returns the number of candles per chart in this window
+     */
+    public int size() {
+        return (int) ((this.lastTimestamp - this.firstTimestamp) / this.interval) + 1;
+    }
+}
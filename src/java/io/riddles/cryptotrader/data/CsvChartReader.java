@@ -0,0 +1,630 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+package io.riddles.cryptotrader.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * io.riddles.cryptotrader.data.CsvChartReader - Created on 18-10-26
+ *
+ * Reads a CSV data file into a ChartSet. The first line contains the
+ * candle format, every next line is a candle of one of the pairs.
+ *
+ * The file is split into byte ranges that end on a line boundary, which
+ * are tokenized in parallel on a fork-join pool without creating a String
+ * per field. Afterwards every candle is put directly at its index in the
+ * chart, which at the same time checks for duplicate timestamps and
+ * timestamps that don't match the interval, so no sorting is needed.
+ */
+public class CsvChartReader {
+
+    private static final String SPLIT_REGEX = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int PAIR = -1;
+    private static final int DATE = -2;
+    private static final int EXTRA = -3;
+
+    private long interval;
+    private ForkJoinPool pool;
+
+    public CsvChartReader(long interval) {
+        this(interval, ForkJoinPool.commonPool());
+    }
+
+    public CsvChartReader(long interval, ForkJoinPool pool) {
+        this.interval = interval;
+        this.pool = pool;
+    }
+
+    public ChartSet read(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            long length = channel.size();
+            long dataStart = findLineEnd(channel, 0, length);
+            String header = readHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0, dataStart));
+
+            ArrayList<ByteBuffer> chunks = new ArrayList<>();
+            long chunkSize = getChunkSize(length - dataStart);
+            long start = dataStart;
+
+            while (start < length) {
+                long end = findLineEnd(channel, Math.min(start + chunkSize, length), length);
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+
+            return read(header, chunks);
+        }
+    }
+
+    public ChartSet read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int read;
+
+        while ((read = inputStream.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+
+        byte[] bytes = output.toByteArray();
+        int dataStart = findLineEnd(bytes, 0);
+        String header = readHeader(ByteBuffer.wrap(bytes, 0, dataStart));
+
+        ArrayList<ByteBuffer> chunks = new ArrayList<>();
+        int chunkSize = (int) getChunkSize(bytes.length - dataStart);
+        int start = dataStart;
+
+        while (start < bytes.length) {
+            int end = findLineEnd(bytes, (int) Math.min((long) start + chunkSize, bytes.length));
+            chunks.add(ByteBuffer.wrap(bytes, start, end - start).slice());
+            start = end;
+        }
+
+        return read(header, chunks);
+    }
+
+    private ChartSet read(String header, List<ByteBuffer> chunks) {
+        if (header.isEmpty()) {
+            throw new RuntimeException("Data file is empty");
+        }
+
+        String[] format = header.split(SPLIT_REGEX);
+        int[] columnTypes = getColumnTypes(format);
+
+        ChunkParser[] parsers = new ChunkParser[chunks.size()];
+        for (int i = 0; i < parsers.length; i++) {
+            parsers[i] = new ChunkParser(chunks.get(i), format, columnTypes);
+        }
+        invoke(new ParseAction(parsers, 0, parsers.length));
+
+        // Combine the chunks per pair, in order of first appearance in the file
+        LinkedHashMap<String, ArrayList<PartialChart>> partialCharts = new LinkedHashMap<>();
+        for (ChunkParser parser : parsers) {
+            parser.charts.forEach((pair, partialChart) ->
+                    partialCharts.computeIfAbsent(pair, key -> new ArrayList<>()).add(partialChart));
+        }
+
+        int size = -1;
+        for (ArrayList<PartialChart> partials : partialCharts.values()) {
+            int pairSize = partials.stream().mapToInt(partial -> partial.size).sum();
+
+            if (size >= 0 && pairSize != size) {
+                throw new RuntimeException("Charts don't have a equal amount of candles.");
+            }
+            size = pairSize;
+        }
+
+        ArrayList<Map.Entry<String, ArrayList<PartialChart>>> entries =
+                new ArrayList<>(partialCharts.entrySet());
+        Chart[] charts = new Chart[entries.size()];
+        invoke(new MergeAction(entries, charts, format, columnTypes, 0, charts.length));
+
+        ChartSet chartSet = new ChartSet(header, this.interval);
+        for (Chart chart : charts) {
+            chartSet.put(chart.getPair(), chart);
+        }
+        chartSet.cacheCandleMessages();
+        chartSet.createRegistry();
+
+        return chartSet;
+    }
+
+    /**
+     * Puts the candles of all partial charts of a pair at their index,
+     * validating the timestamps on the way
+     */
+    private Chart merge(String pair, List<PartialChart> partials, String[] format, int[] columnTypes) {
+        int size = 0;
+        long firstTimestamp = Long.MAX_VALUE;
+
+        for (PartialChart partial : partials) {
+            size += partial.size;
+
+            for (int i = 0; i < partial.size; i++) {
+                firstTimestamp = Math.min(firstTimestamp, partial.timestamps[i]);
+            }
+        }
+
+        long[][] unscaledValues = new long[Chart.FIELDS.length][];
+        byte[][] scales = new byte[Chart.FIELDS.length][];
+        HashMap<String, String[]> extraValues = new HashMap<>();
+        boolean[] isFilled = new boolean[size];
+
+        for (int column = 0; column < format.length; column++) {
+            if (columnTypes[column] >= 0) {
+                unscaledValues[columnTypes[column]] = new long[size];
+                scales[columnTypes[column]] = new byte[size];
+            } else if (columnTypes[column] == EXTRA) {
+                extraValues.put(format[column], new String[size]);
+            }
+        }
+
+        for (PartialChart partial : partials) {
+            for (int i = 0; i < partial.size; i++) {
+                long offset = partial.timestamps[i] - firstTimestamp;
+                long index = offset / this.interval;
+
+                if (offset % this.interval != 0 || index >= size) {
+                    throw new RuntimeException("Candle timestamps are not according to settings");
+                }
+
+                if (isFilled[(int) index]) {
+                    throw new RuntimeException("Can't have two candles with the same timestamp");
+                }
+                isFilled[(int) index] = true;
+
+                for (int field = 0; field < Chart.FIELDS.length; field++) {
+                    if (unscaledValues[field] == null) continue;
+
+                    unscaledValues[field][(int) index] = partial.unscaledValues[field][i];
+                    scales[field][(int) index] = partial.scales[field][i];
+                }
+
+                for (Map.Entry<String, String[]> entry : extraValues.entrySet()) {
+                    entry.getValue()[(int) index] = partial.extraValues.get(entry.getKey()).get(i);
+                }
+            }
+        }
+
+        DecimalColumn[] columns = new DecimalColumn[Chart.FIELDS.length];
+        for (int field = 0; field < Chart.FIELDS.length; field++) {
+            if (unscaledValues[field] != null) {
+                columns[field] = new DecimalColumn(unscaledValues[field], scales[field]);
+            }
+        }
+
+        HashMap<String, ArrayList<String>> extraColumns = new HashMap<>();
+        extraValues.forEach((key, values) -> extraColumns.put(key, new ArrayList<>(Arrays.asList(values))));
+
+        return new Chart(pair, format, this.interval, firstTimestamp, columns, extraColumns);
+    }
+
+    /**
+     * Exceptions thrown in a worker thread are wrapped by the pool,
+     * rethrows the original exception so the message stays the same
+     */
+    private void invoke(RecursiveAction action) {
+        try {
+            this.pool.invoke(action);
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof RuntimeException && ex.getCause().getClass() == ex.getClass()) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private int[] getColumnTypes(String[] format) {
+        int[] columnTypes = new int[format.length];
+        boolean hasPair = false;
+
+        for (int i = 0; i < format.length; i++) {
+            if (format[i].equals("pair")) {
+                columnTypes[i] = PAIR;
+                hasPair = true;
+            } else if (format[i].equals("date")) {
+                columnTypes[i] = DATE;
+            } else {
+                int field = Chart.getFieldIndex(format[i]);
+                columnTypes[i] = field >= 0 ? field : EXTRA;
+            }
+        }
+
+        if (!hasPair) {
+            throw new RuntimeException("Candle format should contain a pair column");
+        }
+
+        return columnTypes;
+    }
+
+    private long getChunkSize(long length) {
+        long chunkCount = Math.max(1, this.pool.getParallelism() * 4L);
+
+        return Math.min(Integer.MAX_VALUE - 1, Math.max(MIN_CHUNK_SIZE, length / chunkCount + 1));
+    }
+
+    private String readHeader(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        String header = new String(bytes, StandardCharsets.UTF_8);
+        while (header.endsWith("\n") || header.endsWith("\r")) {
+            header = header.substring(0, header.length() - 1);
+        }
+
+        return header;
+    }
+
+    /**
+     * Returns the position after the first newline at or after position
+     */
+    private long findLineEnd(FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        while (position < length) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+
+            position += Math.max(read, 0);
+        }
+
+        return length;
+    }
+
+    private int findLineEnd(byte[] bytes, int position) {
+        while (position < bytes.length) {
+            if (bytes[position++] == '\n') {
+                return position;
+            }
+        }
+
+        return bytes.length;
+    }
+
+    /**
+     * Candles of one pair found in one chunk, in file order
+     */
+    private static class PartialChart {
+
+        private int size;
+        private long[] timestamps;
+        private long[][] unscaledValues;
+        private byte[][] scales;
+        private HashMap<String, ArrayList<String>> extraValues;
+
+        PartialChart(String[] format, int[] columnTypes) {
+            this.timestamps = new long[64];
+            this.unscaledValues = new long[Chart.FIELDS.length][];
+            this.scales = new byte[Chart.FIELDS.length][];
+            this.extraValues = new HashMap<>();
+
+            for (int column = 0; column < format.length; column++) {
+                if (columnTypes[column] >= 0) {
+                    this.unscaledValues[columnTypes[column]] = new long[64];
+                    this.scales[columnTypes[column]] = new byte[64];
+                } else if (columnTypes[column] == EXTRA) {
+                    this.extraValues.put(format[column], new ArrayList<>());
+                }
+            }
+        }
+
+        void ensureCapacity() {
+            if (this.size < this.timestamps.length) return;
+
+            int capacity = this.size * 2;
+            this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+
+            for (int field = 0; field < Chart.FIELDS.length; field++) {
+                if (this.unscaledValues[field] == null) continue;
+
+                this.unscaledValues[field] = Arrays.copyOf(this.unscaledValues[field], capacity);
+                this.scales[field] = Arrays.copyOf(this.scales[field], capacity);
+            }
+        }
+    }
+
+    /**
+     * Tokenizes the lines of a single chunk
+     */
+    private static class ChunkParser {
+
+        private ByteBuffer buffer;
+        private String[] format;
+        private int[] columnTypes;
+        private int[] fieldStarts;
+        private int[] fieldEnds;
+        private LinkedHashMap<String, PartialChart> charts;
+        private byte[] lastPair;
+        private PartialChart lastChart;
+        private int scale; // Scale of the last parsed decimal
+
+        ChunkParser(ByteBuffer buffer, String[] format, int[] columnTypes) {
+            this.buffer = buffer;
+            this.format = format;
+            this.columnTypes = columnTypes;
+            this.fieldStarts = new int[format.length];
+            this.fieldEnds = new int[format.length];
+            this.charts = new LinkedHashMap<>();
+        }
+
+        void parse() {
+            int limit = this.buffer.limit();
+            int lineStart = 0;
+
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && this.buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+
+                int contentEnd = lineEnd;
+                if (contentEnd > lineStart && this.buffer.get(contentEnd - 1) == '\r') {
+                    contentEnd--;
+                }
+
+                if (contentEnd > lineStart) {
+                    parseLine(lineStart, contentEnd);
+                }
+
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private void parseLine(int start, int end) {
+            int position = start;
+
+            for (int column = 0; column < this.format.length; column++) {
+                if (position > end) {
+                    throw new RuntimeException("Candle doesn't have a value for every column");
+                }
+
+                boolean isQuoted = false;
+                int fieldEnd = position;
+                while (fieldEnd < end) {
+                    byte current = this.buffer.get(fieldEnd);
+
+                    if (current == '"') {
+                        isQuoted = !isQuoted;
+                    } else if (current == ',' && !isQuoted) {
+                        break;
+                    }
+
+                    fieldEnd++;
+                }
+
+                this.fieldStarts[column] = position;
+                this.fieldEnds[column] = fieldEnd;
+                position = fieldEnd + 1;
+            }
+
+            PartialChart chart = null;
+            for (int column = 0; column < this.format.length; column++) {
+                if (this.columnTypes[column] == PAIR) {
+                    chart = getChart(this.fieldStarts[column], this.fieldEnds[column]);
+                }
+            }
+
+            chart.ensureCapacity();
+
+            for (int column = 0; column < this.format.length; column++) {
+                int type = this.columnTypes[column];
+                int fieldStart = this.fieldStarts[column];
+                int fieldEnd = this.fieldEnds[column];
+
+                if (type == DATE) {
+                    chart.timestamps[chart.size] = parseLong(fieldStart, fieldEnd);
+                } else if (type >= 0) {
+                    chart.unscaledValues[type][chart.size] = parseDecimal(fieldStart, fieldEnd);
+                    chart.scales[type][chart.size] = (byte) this.scale;
+                } else if (type == EXTRA) {
+                    chart.extraValues.get(this.format[column]).add(getString(fieldStart, fieldEnd));
+                }
+            }
+
+            chart.size++;
+        }
+
+        private PartialChart getChart(int start, int end) {
+            if (this.lastPair != null && this.lastPair.length == end - start) {
+                boolean isEqual = true;
+                for (int i = 0; i < this.lastPair.length && isEqual; i++) {
+                    isEqual = this.lastPair[i] == this.buffer.get(start + i);
+                }
+
+                if (isEqual) {
+                    return this.lastChart;
+                }
+            }
+
+            String pair = getString(start, end);
+            this.lastPair = pair.getBytes(StandardCharsets.UTF_8);
+            this.lastChart = this.charts.computeIfAbsent(
+                    pair, key -> new PartialChart(this.format, this.columnTypes));
+
+            return this.lastChart;
+        }
+
+        private long parseLong(int start, int end) {
+            boolean isNegative = start < end && this.buffer.get(start) == '-';
+            int position = isNegative || (start < end && this.buffer.get(start) == '+') ? start + 1 : start;
+
+            if (position == end || end - position > 18) {
+                return Long.parseLong(getString(start, end));
+            }
+
+            long value = 0;
+            for (; position < end; position++) {
+                int digit = this.buffer.get(position) - '0';
+
+                if (digit < 0 || digit > 9) {
+                    return Long.parseLong(getString(start, end)); // Throws the usual exception
+                }
+
+                value = value * 10 + digit;
+            }
+
+            return isNegative ? -value : value;
+        }
+
+        /**
+         * Parses a plain decimal such as -123.4500 to its unscaled value
+         * and stores its scale. Anything else, like exponents or values with
+         * more than 18 digits, is left to BigDecimal
+         */
+        private long parseDecimal(int start, int end) {
+            boolean isNegative = start < end && this.buffer.get(start) == '-';
+            int position = isNegative || (start < end && this.buffer.get(start) == '+') ? start + 1 : start;
+
+            long value = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean hasPoint = false;
+
+            for (; position < end; position++) {
+                byte current = this.buffer.get(position);
+
+                if (current == '.' && !hasPoint) {
+                    hasPoint = true;
+                } else if (current >= '0' && current <= '9' && digits < 18) {
+                    value = value * 10 + (current - '0');
+                    digits++;
+                    if (hasPoint) scale++;
+                } else {
+                    return parseBigDecimal(start, end);
+                }
+            }
+
+            if (digits == 0) {
+                return parseBigDecimal(start, end);
+            }
+
+            this.scale = scale;
+
+            return isNegative ? -value : value;
+        }
+
+        private long parseBigDecimal(int start, int end) {
+            BigDecimal value = new BigDecimal(getString(start, end));
+
+            if (value.unscaledValue().bitLength() > 63
+                    || value.scale() > Byte.MAX_VALUE || value.scale() < Byte.MIN_VALUE) {
+                throw new RuntimeException(String.format("Candle value '%s' is out of range", value));
+            }
+
+            this.scale = value.scale();
+
+            return value.unscaledValue().longValue();
+        }
+
+        private String getString(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = this.buffer.get(start + i);
+            }
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class ParseAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private ChunkParser[] parsers;
+        private int from;
+        private int to;
+
+        ParseAction(ChunkParser[] parsers, int from, int to) {
+            this.parsers = parsers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= 1) {
+                if (this.to > this.from) this.parsers[this.from].parse();
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new ParseAction(this.parsers, this.from, middle),
+                    new ParseAction(this.parsers, middle, this.to));
+        }
+    }
+
+    private class MergeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private List<Map.Entry<String, ArrayList<PartialChart>>> entries;
+        private Chart[] charts;
+        private String[] format;
+        private int[] columnTypes;
+        private int from;
+        private int to;
+
+        MergeAction(List<Map.Entry<String, ArrayList<PartialChart>>> entries, Chart[] charts,
+                    String[] format, int[] columnTypes, int from, int to) {
+            this.entries = entries;
+            this.charts = charts;
+            this.format = format;
+            this.columnTypes = columnTypes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= 1) {
+                if (this.to > this.from) {
+                    Map.Entry<String, ArrayList<PartialChart>> entry = this.entries.get(this.from);
+                    this.charts[this.from] = merge(entry.getKey(), entry.getValue(), this.format, this.columnTypes);
+                }
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new MergeAction(this.entries, this.charts, this.format, this.columnTypes, this.from, middle),
+                    new MergeAction(this.entries, this.charts, this.format, this.columnTypes, middle, this.to));
+        }
+    }
+}
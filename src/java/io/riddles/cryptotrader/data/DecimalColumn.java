@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * io.riddles.cryptotrader.data.DecimalColumn - Created on 18-10-26
+ *
+ * Stores one column of decimal candle values as primitive arrays. Each value
+ * is kept as its unscaled long plus its scale, so the exact decimal from the
+ * data file can be restored without keeping a BigDecimal per value.
+ *
+ * While loading, values are added to growable arrays. After trim() the column
+ * is read through buffers, which either wrap those arrays or point to a
+ * memory-mapped binary data file.
+ */
+public class DecimalColumn {
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private long[] unscaledValues; // Only used while loading
+    private byte[] scales; // Only used while loading
+    private LongBuffer unscaledBuffer;
+    private ByteBuffer scaleBuffer;
+    private int size;
+
+    public DecimalColumn(int capacity) {
+        this.unscaledValues = new long[Math.max(capacity, 1)];
+        this.scales = new byte[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+    public DecimalColumn(long[] unscaledValues, byte[] scales) {
+        this(LongBuffer.wrap(unscaledValues), ByteBuffer.wrap(scales));
+    }
+
+    public DecimalColumn(LongBuffer unscaledBuffer, ByteBuffer scaleBuffer) {
+        this.unscaledBuffer = unscaledBuffer;
+        this.scaleBuffer = scaleBuffer;
+        this.size = unscaledBuffer.limit();
+    }
+
+    public void add(BigDecimal value) {
+        if (value.unscaledValue().bitLength() > 63
+                || value.scale() > Byte.MAX_VALUE || value.scale() < Byte.MIN_VALUE) {
+            throw new RuntimeException(String.format("Candle value '%s' is out of range", value));
+        }
+
+        if (this.size == this.unscaledValues.length) {
+            int capacity = this.size * 2;
+            this.unscaledValues = Arrays.copyOf(this.unscaledValues, capacity);
+            this.scales = Arrays.copyOf(this.scales, capacity);
+        }
+
+        this.unscaledValues[this.size] = value.unscaledValue().longValue();
+        this.scales[this.size] = (byte) value.scale();
+        this.size++;
+    }
+
+    public BigDecimal get(int index) {
+        return BigDecimal.valueOf(this.unscaledBuffer.get(index), this.scaleBuffer.get(index));
+    }
+
+    public long getUnits(int index) {
+        return FixedPoint.toUnits(this.unscaledBuffer.get(index), this.scaleBuffer.get(index));
+    }
+
+    public long getUnscaledValue(int index) {
+        return this.unscaledBuffer.get(index);
+    }
+
+    public int getScale(int index) {
+        return this.scaleBuffer.get(index);
+    }
+
+    /**
+     * Returns the value at given index as a double, for calculations
+     * that don't have to be exact
+     */
+    public double getDouble(int index) {
+        int scale = this.scaleBuffer.get(index);
+        double unscaledValue = this.unscaledBuffer.get(index);
+
+        if (scale >= 0 && scale < DOUBLE_POWERS_OF_TEN.length) {
+            return unscaledValue / DOUBLE_POWERS_OF_TEN[scale];
+        }
+
+        return unscaledValue / Math.pow(10, scale);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Compares the values at given indices exactly, without creating
+     * BigDecimals if they have the same scale
+     */
+    public int compare(int index, int otherIndex) {
+        int scale = this.scaleBuffer.get(index);
+
+        if (scale == this.scaleBuffer.get(otherIndex)) {
+            return Long.compare(this.unscaledBuffer.get(index), this.unscaledBuffer.get(otherIndex));
+        }
+
+        return get(index).compareTo(get(otherIndex));
+    }
+
+    void reorder(int[] order) {
+        long[] unscaledValues = new long[this.size];
+        byte[] scales = new byte[this.size];
+
+        for (int i = 0; i < this.size; i++) {
+            unscaledValues[i] = this.unscaledValues[order[i]];
+            scales[i] = this.scales[order[i]];
+        }
+
+        this.unscaledValues = unscaledValues;
+        this.scales = scales;
+    }
+
+    void trim() {
+        if (this.unscaledValues == null) return;
+
+        if (this.unscaledValues.length != this.size) {
+            this.unscaledValues = Arrays.copyOf(this.unscaledValues, this.size);
+            this.scales = Arrays.copyOf(this.scales, this.size);
+        }
+
+        this.unscaledBuffer = LongBuffer.wrap(this.unscaledValues);
+        this.scaleBuffer = ByteBuffer.wrap(this.scales);
+        this.unscaledValues = null;
+        this.scales = null;
+    }
+}
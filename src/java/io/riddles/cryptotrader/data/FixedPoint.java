@@ -0,0 +1,204 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * io.riddles.cryptotrader.data.FixedPoint - Created on 18-10-26
+ *
+ * Helpers for non-negative fixed-point values stored as longs in units
+ * of 1e-8. All conversions and products round down (toward zero).
+ *
+ * Values that need more precision are split into whole units and a
+ * fraction of a unit in units of 1e-26, which is enough to keep amount
+ * times rate times fee exact.
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 8;
+    public static final long ONE = 100000000L;
+    public static final int FRACTION_SCALE = 26;
+    public static final long FRACTION_ONE = 1000000000000000000L; // Fractions of 1e-26 in a unit
+
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+            1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+            100000000000000L, 1000000000000000L, 10000000000000000L, 100000000000000000L,
+            1000000000000000000L
+    };
+
+    private FixedPoint() {}
+
+    /**
+     * Converts a decimal to units, values that don't fit in a long
+     * are saturated to Long.MAX_VALUE or Long.MIN_VALUE
+     */
+    public static long toUnits(BigDecimal value) {
+        BigDecimal scaled = value.setScale(SCALE, RoundingMode.DOWN);
+
+        if (scaled.unscaledValue().bitLength() > 63) {
+            return scaled.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+
+        return scaled.unscaledValue().longValue();
+    }
+
+    public static long toUnits(long unscaledValue, int scale) {
+        if (scale == SCALE) {
+            return unscaledValue;
+        }
+
+        if (scale > SCALE) {
+            int shift = scale - SCALE;
+            return shift < POWERS_OF_TEN.length ? unscaledValue / POWERS_OF_TEN[shift] : 0;
+        }
+
+        int shift = SCALE - scale;
+        if (shift >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Value out of range for fixed-point units");
+        }
+
+        return Math.multiplyExact(unscaledValue, POWERS_OF_TEN[shift]);
+    }
+
+    public static BigDecimal toDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    /**
+     * Returns a * b in units, rounded down. Both values must be non-negative
+     */
+    public static long multiply(long a, long b) {
+        long aHigh = a / ONE;
+        long aLow = a % ONE;
+        long bHigh = b / ONE;
+        long bLow = b % ONE;
+
+        long result = Math.multiplyExact(Math.multiplyExact(aHigh, bHigh), ONE);
+        result = Math.addExact(result, Math.multiplyExact(aHigh, bLow));
+        result = Math.addExact(result, Math.multiplyExact(aLow, bHigh));
+
+        return Math.addExact(result, aLow * bLow / ONE);
+    }
+
+    /**
+     * Splits a * b / 10^scale into whole units and a fraction of a unit in
+     * units of 1e-26, stored in result[0] and result[1]. Uses a 128 bit
+     * intermediate product so a and b don't have to be in units. Both
+     * values must be non-negative. Returns false if digits below 1e-26
+     * were dropped, true if the split is exact
+     */
+    public static boolean multiplySplit(long a, long b, int scale, long[] result) {
+        long aHigh = a >>> 32;
+        long aLow = a & MASK;
+        long bHigh = b >>> 32;
+        long bLow = b & MASK;
+
+        long lowLow = aLow * bLow;
+        long highLow = aHigh * bLow;
+        long lowHigh = aLow * bHigh;
+        long cross = (lowLow >>> 32) + (highLow & MASK) + (lowHigh & MASK);
+        long high = aHigh * bHigh + (highLow >>> 32) + (lowHigh >>> 32) + (cross >>> 32);
+
+        // The product as four 32 bit limbs, most significant first
+        long limb0 = high >>> 32;
+        long limb1 = high & MASK;
+        long limb2 = cross & MASK;
+        long limb3 = lowLow & MASK;
+
+        boolean isExact = true;
+        int droppedDigits = Math.max(scale - FRACTION_SCALE, 0);
+        long fraction = 0;
+        long digitValue = scale > SCALE ? POWERS_OF_TEN[FRACTION_SCALE - Math.min(scale, FRACTION_SCALE)] : 0;
+
+        for (int digits = scale - SCALE; digits > 0; ) {
+            int step = Math.min(digits, 9);
+            if (droppedDigits > 0) {
+                step = Math.min(step, droppedDigits);
+            }
+
+            long divisor = POWERS_OF_TEN[step];
+            long current;
+
+            current = limb0;
+            limb0 = current / divisor;
+            current = ((current % divisor) << 32) | limb1;
+            limb1 = current / divisor;
+            current = ((current % divisor) << 32) | limb2;
+            limb2 = current / divisor;
+            current = ((current % divisor) << 32) | limb3;
+            limb3 = current / divisor;
+
+            if (droppedDigits > 0) {
+                isExact &= current % divisor == 0;
+                droppedDigits -= step;
+            } else {
+                fraction += current % divisor * digitValue;
+                digitValue *= divisor;
+            }
+
+            digits -= step;
+        }
+
+        if (limb0 != 0 || limb1 != 0 || limb2 > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Fixed-point product out of range");
+        }
+
+        long units = (limb2 << 32) | limb3;
+        if (scale < SCALE) {
+            if (SCALE - scale >= POWERS_OF_TEN.length) {
+                throw new ArithmeticException("Fixed-point product out of range");
+            }
+
+            units = Math.multiplyExact(units, POWERS_OF_TEN[SCALE - scale]);
+        }
+
+        result[0] = units;
+        result[1] = fraction;
+
+        return isExact;
+    }
+
+    /**
+     * Splits (units + fraction / 1e18) * b / 10^scale like
+     * multiplySplit(a, b, scale, result), so a split value can be
+     * multiplied again without losing its fraction
+     */
+    public static boolean multiplySplit(long units, long fraction, long b, int scale, long[] result) {
+        boolean isExact = multiplySplit(fraction, b, FRACTION_SCALE + scale, result);
+        long fractionUnits = result[0];
+        long fractionRest = result[1];
+
+        isExact &= multiplySplit(units, b, SCALE + scale, result);
+        result[0] = Math.addExact(result[0], fractionUnits);
+        result[1] += fractionRest;
+
+        if (result[1] >= FRACTION_ONE) {
+            result[0] = Math.addExact(result[0], 1);
+            result[1] -= FRACTION_ONE;
+        }
+
+        return isExact;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.riddles.cryptotrader.data.indicator.Indicator;
+
+/**
+ * io.riddles.cryptotrader.data.IndicatorSet - Created on 18-10-26
+ *
+ * Indicators of a selection of pairs, sent to the bots as an indicators
+ * update. The indicators are updated one candle at a time, only up to
+ * the latest timestamp that is asked for, and each indicators message is
+ * rendered once. Sets are shared by all players and matches on the same
+ * chart set, so the indicators of a timestamp are computed only once.
+ *
+ * Messages are in the same layout as next_candles messages, with the
+ * values in the order of the indicator_format. Values are left empty
+ * while there aren't enough candles yet.
+ */
+public class IndicatorSet {
+
+    private static final int SCALE = 8;
+
+    private Chart[] charts;
+    private Chart firstChart;
+    private Indicator[][] indicators; // Indicators by chart
+    private String indicatorFormat;
+    private String[] indicatorMessages;
+    private volatile int computedCount; // Messages before this index are rendered
+
+    /**
+     * Creates the indicators with given names for given pairs, an empty
+     * list of pairs means all of them
+     */
+    public IndicatorSet(ChartSet chartSet, List<String> pairs, List<String> names) {
+        ArrayList<Chart> charts = new ArrayList<>(chartSet.values());
+
+        if (charts.isEmpty()) {
+            throw new RuntimeException("Data file doesn't contain any candles");
+        }
+
+        for (String pair : pairs) {
+            if (!chartSet.containsKey(pair)) {
+                throw new RuntimeException(String.format("Can't subscribe to unknown pair '%s'", pair));
+            }
+        }
+
+        if (!pairs.isEmpty()) {
+            charts.removeIf(chart -> !pairs.contains(chart.getPair()));
+        }
+
+        this.charts = charts.toArray(new Chart[0]);
+        this.firstChart = charts.get(0);
+        this.indicators = new Indicator[this.charts.length][];
+
+        for (int i = 0; i < this.charts.length; i++) {
+            for (int field : new int[] {Chart.HIGH, Chart.LOW, Chart.CLOSE}) {
+                if (this.charts[i].getColumn(field) == null) {
+                    throw new RuntimeException(String.format("Chart %s doesn't have %s values",
+                            this.charts[i].getPair(), Chart.FIELDS[field]));
+                }
+            }
+
+            this.indicators[i] = names.stream().map(Indicator::create).toArray(Indicator[]::new);
+        }
+
+        ArrayList<String> format = new ArrayList<>();
+        format.add("pair");
+        format.add("date");
+        for (Indicator indicator : this.indicators[0]) {
+            format.add(indicator.getName());
+        }
+
+        this.indicatorFormat = String.join(",", format);
+        this.indicatorMessages = new String[this.firstChart.size()];
+    }
+
+    /**
+     * Returns the indicator_format setting for this set
+     */
+    public String getIndicatorFormat() {
+        return this.indicatorFormat;
+    }
+
+    /**
+     * Returns the indicators message for given timestamp, or null if there
+     * are no candles at that time
+     */
+    public String getIndicatorMessage(long timestamp) {
+        int index = this.firstChart.getIndex(timestamp);
+
+        if (index < 0) {
+            return null;
+        }
+
+        if (index >= this.computedCount) {
+            computeUpTo(index);
+        }
+
+        return this.indicatorMessages[index];
+    }
+
+    private synchronized void computeUpTo(int lastIndex) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int index = this.computedCount; index <= lastIndex; index++) {
+            long timestamp = this.firstChart.getTimestamp(index);
+            builder.setLength(0);
+
+            for (int i = 0; i < this.charts.length; i++) {
+                Chart chart = this.charts[i];
+                int chartIndex = chart.getIndex(timestamp);
+
+                if (chartIndex < 0) {
+                    throw new RuntimeException(String.format(
+                            "Chart %s doesn't have a candle at %d", chart.getPair(), timestamp));
+                }
+
+                double high = chart.getColumn(Chart.HIGH).getDouble(chartIndex);
+                double low = chart.getColumn(Chart.LOW).getDouble(chartIndex);
+                double close = chart.getColumn(Chart.CLOSE).getDouble(chartIndex);
+
+                if (builder.length() > 0) builder.append(';');
+                builder.append(chart.getPair()).append(',').append(timestamp);
+
+                for (Indicator indicator : this.indicators[i]) {
+                    double value = indicator.next(high, low, close);
+
+                    builder.append(',');
+                    if (!Double.isNaN(value)) builder.append(formatValue(value));
+                }
+            }
+
+            this.indicatorMessages[index] = builder.toString();
+        }
+
+        // Written last, so other threads only read messages that are rendered
+        this.computedCount = Math.max(this.computedCount, lastIndex + 1);
+    }
+
+    private static String formatValue(double value) {
+        return BigDecimal.valueOf(value)
+                .setScale(SCALE, RoundingMode.HALF_UP)
+                .stripTrailingZeros()
+                .toPlainString();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.math.BigDecimal;
+
+/**
+ * io.riddles.cryptotrader.data.RangeIndex - Created on 18-10-26
+ *
+ * Answers the highest high, lowest low and total volume of a chart
+ * between any two timestamps in constant time. Highs and lows use sparse
+ * tables: for each power of two, the index of the extreme value of every
+ * range of that length. Any range is covered by two overlapping ranges
+ * of the largest power of two that fits. Volumes use prefix sums.
+ *
+ * The tables take n log n ints per column, so the index is only built
+ * when a chart is first queried.
+ */
+public class RangeIndex {
+
+    private Chart chart;
+    private int[][] highIndices; // highIndices[k][i] is the index of the highest high in [i, i + 2^k)
+    private int[][] lowIndices;
+    private BigDecimal[] volumeSums; // volumeSums[i] is the volume of all candles before index i
+
+    RangeIndex(Chart chart) {
+        this.chart = chart;
+        this.highIndices = buildSparseTable(chart.getColumn(Chart.HIGH), chart.size(), true);
+        this.lowIndices = buildSparseTable(chart.getColumn(Chart.LOW), chart.size(), false);
+
+        DecimalColumn volumes = chart.getColumn(Chart.VOLUME);
+
+        if (volumes != null) {
+            this.volumeSums = new BigDecimal[chart.size() + 1];
+            this.volumeSums[0] = BigDecimal.ZERO;
+
+            for (int i = 0; i < chart.size(); i++) {
+                this.volumeSums[i + 1] = this.volumeSums[i].add(volumes.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the highest high of the candles from firstTimestamp up to and including lastTimestamp
+     */
+    public BigDecimal getHigh(long firstTimestamp, long lastTimestamp) {
+        return getExtreme(this.highIndices, Chart.HIGH, firstTimestamp, lastTimestamp);
+    }
+
+    /**
+     * Returns the lowest low of the candles from firstTimestamp up to and including lastTimestamp
+     */
+    public BigDecimal getLow(long firstTimestamp, long lastTimestamp) {
+        return getExtreme(this.lowIndices, Chart.LOW, firstTimestamp, lastTimestamp);
+    }
+
+    /**
+     * Returns the total volume of the candles from firstTimestamp up to and including lastTimestamp
+     */
+    public BigDecimal getVolume(long firstTimestamp, long lastTimestamp) {
+        if (this.volumeSums == null) {
+            throw new RuntimeException(String.format("Chart %s doesn't have volumes", this.chart.getPair()));
+        }
+
+        int firstIndex = getIndex(firstTimestamp, firstTimestamp, lastTimestamp);
+        int lastIndex = getIndex(lastTimestamp, firstTimestamp, lastTimestamp);
+
+        return this.volumeSums[lastIndex + 1].subtract(this.volumeSums[firstIndex]);
+    }
+
+    private BigDecimal getExtreme(int[][] table, int field, long firstTimestamp, long lastTimestamp) {
+        if (table == null) {
+            throw new RuntimeException(String.format(
+                    "Chart %s doesn't have %s values", this.chart.getPair(), Chart.FIELDS[field]));
+        }
+
+        int firstIndex = getIndex(firstTimestamp, firstTimestamp, lastTimestamp);
+        int lastIndex = getIndex(lastTimestamp, firstTimestamp, lastTimestamp);
+        int level = 31 - Integer.numberOfLeadingZeros(lastIndex - firstIndex + 1);
+
+        DecimalColumn column = this.chart.getColumn(field);
+        int index = pick(column, table[level][firstIndex],
+                table[level][lastIndex - (1 << level) + 1], field == Chart.HIGH);
+
+        return column.get(index);
+    }
+
+    private int getIndex(long timestamp, long firstTimestamp, long lastTimestamp) {
+        int index = this.chart.getIndex(timestamp);
+
+        if (index < 0 || firstTimestamp > lastTimestamp) {
+            throw new RuntimeException(String.format(
+                    "Chart %s doesn't have candles from %d to %d",
+                    this.chart.getPair(), firstTimestamp, lastTimestamp));
+        }
+
+        return index;
+    }
+
+    private static int[][] buildSparseTable(DecimalColumn column, int size, boolean isMax) {
+        if (column == null) {
+            return null;
+        }
+
+        int levels = 32 - Integer.numberOfLeadingZeros(size);
+        int[][] table = new int[levels][];
+
+        if (levels == 0) {
+            return table;
+        }
+
+        table[0] = new int[size];
+        for (int i = 0; i < size; i++) {
+            table[0][i] = i;
+        }
+
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int[] previous = table[level - 1];
+            int[] current = new int[size - (1 << level) + 1];
+
+            for (int i = 0; i < current.length; i++) {
+                current[i] = pick(column, previous[i], previous[i + half], isMax);
+            }
+
+            table[level] = current;
+        }
+
+        return table;
+    }
+
+    private static int pick(DecimalColumn column, int index, int otherIndex, boolean isMax) {
+        int comparison = column.compare(index, otherIndex);
+
+        return (isMax ? comparison >= 0 : comparison <= 0) ? index : otherIndex;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * io.riddles.cryptotrader.data.SymbolRegistry - Created on 18-10-26
+ *
+ * Dense integer ids for all pairs and symbols of a dataset, so orders,
+ * stacks and charts can be addressed by index. Pair ids follow the
+ * iteration order of the charts, symbol ids the order in which they
+ * first appear in those pairs.
+ *
+ * A pair like USDT_BTC has base USDT and quote BTC: buying spends the
+ * base and receives the quote. Each symbol is valued in USDT through the
+ * shortest route of pairs, e.g. ETH through BTC_ETH and USDT_BTC if there
+ * is no USDT_ETH. Of equally short routes, the ones that don't need an
+ * inverted rate are preferred, then the lowest pair ids.
+ */
+public class SymbolRegistry {
+
+    public static final String USDT = "USDT";
+
+    private String[] pairs;
+    private Chart[] pairCharts;
+    private int[] pairTable; // Open addressing table of pair id + 1 by hash
+    private int[] baseIds;
+    private int[] quoteIds;
+    private String[] symbols;
+    private HashMap<String, Integer> symbolIds;
+    private int[] valuationPairIds; // First pair of the route of each symbol
+    private int[] valuationSourceIds; // Symbol on the other side of that pair
+    private int[] valuationOrder; // Symbols by route length, USDT first
+    private int usdtId;
+
+    public SymbolRegistry(Map<String, Chart> charts) {
+        this.pairs = charts.keySet().toArray(new String[0]);
+        this.pairCharts = new Chart[this.pairs.length];
+        this.baseIds = new int[this.pairs.length];
+        this.quoteIds = new int[this.pairs.length];
+        this.symbolIds = new HashMap<>();
+
+        ArrayList<String> symbols = new ArrayList<>();
+
+        for (int pairId = 0; pairId < this.pairs.length; pairId++) {
+            String[] split = this.pairs[pairId].split("_");
+
+            if (split.length != 2) {
+                throw new RuntimeException(
+                        String.format("Pair '%s' should consist of two symbols", this.pairs[pairId]));
+            }
+
+            this.pairCharts[pairId] = charts.get(this.pairs[pairId]);
+            this.baseIds[pairId] = addSymbol(split[0], symbols);
+            this.quoteIds[pairId] = addSymbol(split[1], symbols);
+        }
+
+        if (!this.symbolIds.containsKey(USDT)) {
+            throw new RuntimeException("USDT should be in at least one trading pair");
+        }
+
+        this.symbols = symbols.toArray(new String[0]);
+        this.usdtId = this.symbolIds.get(USDT);
+        this.pairTable = createPairTable(this.pairs);
+        createValuationRoutes();
+    }
+
+    public int getPairCount() {
+        return this.pairs.length;
+    }
+
+    public String getPair(int pairId) {
+        return this.pairs[pairId];
+    }
+
+    /**
+     * Returns the id of given pair, -1 if there is no such pair
+     */
+    public int getPairId(String pair) {
+        return getPairId(pair, 0, pair.length());
+    }
+
+    /**
+     * Returns the id of the pair at given part of the input without
+     * creating a substring, -1 if there is no such pair
+     */
+    public int getPairId(String input, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + input.charAt(i);
+        }
+
+        int mask = this.pairTable.length - 1;
+        for (int slot = hash & mask; this.pairTable[slot] != 0; slot = (slot + 1) & mask) {
+            String pair = this.pairs[this.pairTable[slot] - 1];
+
+            if (pair.length() == end - start && input.regionMatches(start, pair, 0, pair.length())) {
+                return this.pairTable[slot] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    public Chart getChart(int pairId) {
+        return this.pairCharts[pairId];
+    }
+
+    public int getBaseId(int pairId) {
+        return this.baseIds[pairId];
+    }
+
+    public int getQuoteId(int pairId) {
+        return this.quoteIds[pairId];
+    }
+
+    public int getSymbolCount() {
+        return this.symbols.length;
+    }
+
+    public String getSymbol(int symbolId) {
+        return this.symbols[symbolId];
+    }
+
+    /**
+     * Returns the id of given symbol, -1 if there is no such symbol
+     */
+    public int getSymbolId(String symbol) {
+        Integer id = this.symbolIds.get(symbol);
+
+        return id != null ? id : -1;
+    }
+
+    public int getUsdtId() {
+        return this.usdtId;
+    }
+
+    /**
+     * Returns the id of the first pair of the valuation route of given
+     * symbol, which is its USDT pair if it has one, -1 for USDT itself
+     */
+    public int getValuationPairId(int symbolId) {
+        return this.valuationPairIds[symbolId];
+    }
+
+    /**
+     * Returns the chart of the first pair of the valuation route of
+     * given symbol, null for USDT itself
+     */
+    public Chart getValuationChart(int symbolId) {
+        int pairId = this.valuationPairIds[symbolId];
+
+        return pairId >= 0 ? this.pairCharts[pairId] : null;
+    }
+
+    /**
+     * Returns the symbol on the other side of the first pair of the
+     * valuation route of given symbol, which is valued before it
+     */
+    public int getValuationSourceId(int symbolId) {
+        return this.valuationSourceIds[symbolId];
+    }
+
+    /**
+     * Returns whether given symbol is the base of the first pair of its
+     * valuation route, so the source price is divided by the rate instead
+     * of multiplied with it
+     */
+    public boolean isValuationInverted(int symbolId) {
+        int pairId = this.valuationPairIds[symbolId];
+
+        return pairId >= 0 && this.baseIds[pairId] == symbolId;
+    }
+
+    /**
+     * Returns all symbol ids in order of the length of their valuation
+     * route, so each symbol comes after the source it's valued with
+     */
+    public int[] getValuationOrder() {
+        return this.valuationOrder;
+    }
+
+    /**
+     * Finds the shortest route to USDT for each symbol by a breadth first
+     * search from USDT over the pairs
+     */
+    private void createValuationRoutes() {
+        this.valuationPairIds = new int[this.symbols.length];
+        this.valuationSourceIds = new int[this.symbols.length];
+        this.valuationOrder = new int[this.symbols.length];
+        Arrays.fill(this.valuationPairIds, -1);
+        Arrays.fill(this.valuationSourceIds, -1);
+
+        boolean[] isValued = new boolean[this.symbols.length];
+        isValued[this.usdtId] = true;
+        this.valuationOrder[0] = this.usdtId;
+        int levelStart = 0;
+        int valuedCount = 1;
+
+        while (levelStart < valuedCount) {
+            int levelEnd = valuedCount;
+
+            // First quotes of pairs with a valued base, which multiply by the rate
+            for (boolean isInverted : new boolean[] {false, true}) {
+                for (int i = levelStart; i < levelEnd; i++) {
+                    int sourceId = this.valuationOrder[i];
+
+                    for (int pairId = 0; pairId < this.pairs.length; pairId++) {
+                        int fromId = isInverted ? this.quoteIds[pairId] : this.baseIds[pairId];
+                        int toId = isInverted ? this.baseIds[pairId] : this.quoteIds[pairId];
+
+                        if (fromId == sourceId && !isValued[toId]) {
+                            isValued[toId] = true;
+                            this.valuationPairIds[toId] = pairId;
+                            this.valuationSourceIds[toId] = sourceId;
+                            this.valuationOrder[valuedCount++] = toId;
+                        }
+                    }
+                }
+            }
+
+            levelStart = levelEnd;
+        }
+
+        for (int symbolId = 0; symbolId < this.symbols.length; symbolId++) {
+            if (!isValued[symbolId]) {
+                throw new RuntimeException(String.format(
+                        "%s can't be valued in USDT through any trading pair", this.symbols[symbolId]));
+            }
+        }
+    }
+
+    private int addSymbol(String symbol, ArrayList<String> symbols) {
+        Integer id = this.symbolIds.get(symbol);
+
+        if (id == null) {
+            id = symbols.size();
+            symbols.add(symbol);
+            this.symbolIds.put(symbol, id);
+        }
+
+        return id;
+    }
+
+    private static int[] createPairTable(String[] pairs) {
+        int tableSize = Integer.highestOneBit(Math.max(pairs.length, 1) * 4 - 1) << 1;
+        int[] pairTable = new int[tableSize];
+
+        for (int id = 0; id < pairs.length; id++) {
+            int slot = pairs[id].hashCode() & (tableSize - 1);
+            while (pairTable[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            pairTable[slot] = id + 1;
+        }
+
+        return pairTable;
+    }
+}
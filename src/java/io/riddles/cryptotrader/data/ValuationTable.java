@@ -0,0 +1,195 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * io.riddles.cryptotrader.data.ValuationTable - Created on 18-10-26
+ *
+ * The USDT price of every symbol at every timestamp, looked up by the
+ * index of the timestamp and the symbol id, so valuing stacks is a dot
+ * product of the balances with the prices of the current timestamp.
+ *
+ * Symbols with a USDT pair are priced with the exact close rate, which is
+ * read from the chart itself. Only the prices of the other symbols are
+ * stored, valued through their route in the symbol registry, e.g. ETH as
+ * the BTC_ETH rate times the USDT price of BTC. These prices are rounded
+ * down to units of 1e-8.
+ */
+public class ValuationTable {
+
+    private Chart firstChart;
+    private int usdtId;
+    private DecimalColumn[] directRates; // Close rates by symbol id, null if routed
+    private int[] routedSlots; // Slot of each routed symbol, -1 if not routed
+    private int routedCount;
+    private long[] routedUnits; // Prices by index * routedCount + slot
+
+    public ValuationTable(ChartSet charts) {
+        SymbolRegistry symbols = charts.getRegistry();
+        int symbolCount = symbols.getSymbolCount();
+
+        this.firstChart = charts.values().iterator().next();
+        this.usdtId = symbols.getUsdtId();
+        this.directRates = new DecimalColumn[symbolCount];
+        this.routedSlots = new int[symbolCount];
+        Arrays.fill(this.routedSlots, -1);
+
+        for (int symbolId : symbols.getValuationOrder()) {
+            if (symbolId == this.usdtId) {
+                continue;
+            }
+
+            if (symbols.getValuationSourceId(symbolId) == this.usdtId && !symbols.isValuationInverted(symbolId)) {
+                Chart chart = symbols.getValuationChart(symbolId);
+
+                checkAligned(chart);
+                this.directRates[symbolId] = chart.getColumn(Chart.CLOSE);
+            } else {
+                this.routedSlots[symbolId] = this.routedCount++;
+            }
+        }
+
+        this.routedUnits = new long[Math.multiplyExact(this.firstChart.size(), this.routedCount)];
+
+        for (int index = 0; index < this.firstChart.size(); index++) {
+            long timestamp = this.firstChart.getTimestamp(index);
+
+            for (int symbolId : symbols.getValuationOrder()) {
+                int slot = this.routedSlots[symbolId];
+
+                if (slot < 0) {
+                    continue;
+                }
+
+                Chart chart = symbols.getValuationChart(symbolId);
+                int chartIndex = chart.getIndex(timestamp);
+
+                if (chartIndex < 0) {
+                    throw new RuntimeException(String.format(
+                            "Chart %s doesn't have a candle at %d", chart.getPair(), timestamp));
+                }
+
+                DecimalColumn rates = chart.getColumn(Chart.CLOSE);
+                int sourceId = symbols.getValuationSourceId(symbolId);
+                long units;
+
+                if (symbols.isValuationInverted(symbolId)) {
+                    BigDecimal rate = rates.get(chartIndex);
+
+                    units = rate.signum() == 0
+                            ? 0
+                            : FixedPoint.toUnits(getPrice(index, sourceId).divide(
+                                    rate, FixedPoint.SCALE, RoundingMode.DOWN));
+                } else {
+                    units = FixedPoint.multiply(rates.getUnits(chartIndex), getPriceUnits(index, sourceId));
+                }
+
+                this.routedUnits[index * this.routedCount + slot] = units;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the prices at given timestamp, -1 if there
+     * are no candles at that time
+     */
+    public int getIndex(long timestamp) {
+        return this.firstChart.getIndex(timestamp);
+    }
+
+    public BigDecimal getPrice(int index, int symbolId) {
+        if (symbolId == this.usdtId) {
+            return BigDecimal.ONE;
+        }
+
+        DecimalColumn rates = this.directRates[symbolId];
+
+        if (rates != null) {
+            return rates.get(index);
+        }
+
+        return FixedPoint.toDecimal(getRoutedUnits(index, symbolId));
+    }
+
+    public long getPriceUnits(int index, int symbolId) {
+        if (symbolId == this.usdtId) {
+            return FixedPoint.ONE;
+        }
+
+        DecimalColumn rates = this.directRates[symbolId];
+
+        if (rates != null) {
+            return rates.getUnits(index);
+        }
+
+        return getRoutedUnits(index, symbolId);
+    }
+
+    public long getUnscaledPrice(int index, int symbolId) {
+        if (symbolId == this.usdtId) {
+            return 1;
+        }
+
+        DecimalColumn rates = this.directRates[symbolId];
+
+        if (rates != null) {
+            return rates.getUnscaledValue(index);
+        }
+
+        return getRoutedUnits(index, symbolId);
+    }
+
+    public int getPriceScale(int index, int symbolId) {
+        if (symbolId == this.usdtId) {
+            return 0;
+        }
+
+        DecimalColumn rates = this.directRates[symbolId];
+
+        if (rates != null) {
+            return rates.getScale(index);
+        }
+
+        return FixedPoint.SCALE;
+    }
+
+    private long getRoutedUnits(int index, int symbolId) {
+        return this.routedUnits[index * this.routedCount + this.routedSlots[symbolId]];
+    }
+
+    /**
+     * Direct rates are read by the index of the first chart, so the chart
+     * needs a candle at every timestamp of the first chart, at that index
+     */
+    private void checkAligned(Chart chart) {
+        for (int index = 0; index < this.firstChart.size(); index++) {
+            long timestamp = this.firstChart.getTimestamp(index);
+
+            if (chart.getIndex(timestamp) != index) {
+                throw new RuntimeException(String.format(
+                        "Chart %s doesn't have a candle at %d", chart.getPair(), timestamp));
+            }
+        }
+    }
+}
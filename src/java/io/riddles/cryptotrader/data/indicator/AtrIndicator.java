@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data.indicator;
+
+/**
+ * io.riddles.cryptotrader.data.indicator.AtrIndicator - Created on 18-10-26
+ *
+ * Average true range with Wilder's smoothing. The true range of the first
+ * candle is its high minus its low, as there is no previous close yet.
+ */
+public class AtrIndicator extends Indicator {
+
+    private double previousClose = Double.NaN;
+    private int count;
+    private double value;
+
+    public AtrIndicator(String name, int period) {
+        super(name, period);
+    }
+
+    @Override
+    public double next(double high, double low, double close) {
+        double trueRange = high - low;
+
+        if (!Double.isNaN(this.previousClose)) {
+            trueRange = Math.max(trueRange, Math.max(
+                    Math.abs(high - this.previousClose), Math.abs(low - this.previousClose)));
+        }
+
+        this.previousClose = close;
+
+        if (this.count < this.period) {
+            this.count++;
+            this.value += trueRange;
+
+            if (this.count < this.period) {
+                return Double.NaN;
+            }
+
+            this.value /= this.period;
+            return this.value;
+        }
+
+        this.value = (this.value * (this.period - 1) + trueRange) / this.period;
+
+        return this.value;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data.indicator;
+
+/**
+ * io.riddles.cryptotrader.data.indicator.EmaIndicator - Created on 18-10-26
+ *
+ * Exponential moving average of the closes with a smoothing factor of
+ * 2 / (period + 1), starting at the simple average of the first period.
+ */
+public class EmaIndicator extends Indicator {
+
+    private double alpha;
+    private int count;
+    private double value;
+
+    public EmaIndicator(String name, int period) {
+        super(name, period);
+        this.alpha = 2.0 / (period + 1);
+    }
+
+    @Override
+    public double next(double high, double low, double close) {
+        if (this.count < this.period) {
+            this.count++;
+            this.value += close;
+
+            if (this.count < this.period) {
+                return Double.NaN;
+            }
+
+            this.value /= this.period;
+            return this.value;
+        }
+
+        this.value += this.alpha * (close - this.value);
+
+        return this.value;
+    }
+}
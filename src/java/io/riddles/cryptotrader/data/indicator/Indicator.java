@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data.indicator;
+
+/**
+ * io.riddles.cryptotrader.data.indicator.Indicator - Created on 18-10-26
+ *
+ * A technical indicator that is updated one candle at a time, in constant
+ * time per candle. Indicators are named by their type and period, like
+ * sma_20, ema_12, rsi_14 or atr_14.
+ */
+public abstract class Indicator {
+
+    protected final int period;
+    private final String name;
+
+    protected Indicator(String name, int period) {
+        this.name = name;
+        this.period = period;
+    }
+
+    public static Indicator create(String name) {
+        int separator = name.indexOf('_');
+
+        if (separator < 0) {
+            throw new RuntimeException(String.format(
+                    "Indicator '%s' should be a type and a period, like sma_20", name));
+        }
+
+        String type = name.substring(0, separator).toLowerCase();
+        String periodString = name.substring(separator + 1);
+        int period;
+
+        try {
+            period = Integer.parseInt(periodString);
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException(String.format("Can't parse indicator period '%s'", periodString));
+        }
+
+        if (period <= 0) {
+            throw new RuntimeException("Indicator period should be greater than 0");
+        }
+
+        String normalizedName = type + "_" + period;
+
+        switch (type) {
+            case "sma":
+                return new SmaIndicator(normalizedName, period);
+            case "ema":
+                return new EmaIndicator(normalizedName, period);
+            case "rsi":
+                return new RsiIndicator(normalizedName, period);
+            case "atr":
+                return new AtrIndicator(normalizedName, period);
+            default:
+                throw new RuntimeException(String.format("Unknown indicator '%s'", name));
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getPeriod() {
+        return this.period;
+    }
+
+    /**
+     * Adds the next candle and returns the value of the indicator at that
+     * candle, NaN while there aren't enough candles yet
+     */
+    public abstract double next(double high, double low, double close);
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data.indicator;
+
+/**
+ * io.riddles.cryptotrader.data.indicator.RsiIndicator - Created on 18-10-26
+ *
+ * Relative strength index of the closes with Wilder's smoothing. The
+ * average gain and loss start as the simple averages of the first period
+ * of changes, so the first value is at candle period + 1.
+ */
+public class RsiIndicator extends Indicator {
+
+    private double previousClose = Double.NaN;
+    private int count;
+    private double averageGain;
+    private double averageLoss;
+
+    public RsiIndicator(String name, int period) {
+        super(name, period);
+    }
+
+    @Override
+    public double next(double high, double low, double close) {
+        if (Double.isNaN(this.previousClose)) {
+            this.previousClose = close;
+            return Double.NaN;
+        }
+
+        double change = close - this.previousClose;
+        double gain = Math.max(change, 0);
+        double loss = Math.max(-change, 0);
+        this.previousClose = close;
+
+        if (this.count < this.period) {
+            this.count++;
+            this.averageGain += gain;
+            this.averageLoss += loss;
+
+            if (this.count < this.period) {
+                return Double.NaN;
+            }
+
+            this.averageGain /= this.period;
+            this.averageLoss /= this.period;
+        } else {
+            this.averageGain = (this.averageGain * (this.period - 1) + gain) / this.period;
+            this.averageLoss = (this.averageLoss * (this.period - 1) + loss) / this.period;
+        }
+
+        if (this.averageLoss == 0) {
+            return this.averageGain == 0 ? 50 : 100;
+        }
+
+        return 100 - 100 / (1 + this.averageGain / this.averageLoss);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data.indicator;
+
+/**
+ * io.riddles.cryptotrader.data.indicator.SmaIndicator - Created on 18-10-26
+ *
+ * Simple moving average of the closes, with the last closes kept in a ring
+ * buffer next to their running sum.
+ */
+public class SmaIndicator extends Indicator {
+
+    private double[] closes;
+    private int slot;
+    private int count;
+    private double sum;
+
+    public SmaIndicator(String name, int period) {
+        super(name, period);
+        this.closes = new double[period];
+    }
+
+    @Override
+    public double next(double high, double low, double close) {
+        if (this.count == this.period) {
+            this.sum -= this.closes[this.slot];
+        } else {
+            this.count++;
+        }
+
+        this.closes[this.slot] = close;
+        this.sum += close;
+        this.slot = (this.slot + 1) % this.period;
+
+        return this.count == this.period ? this.sum / this.period : Double.NaN;
+    }
+}
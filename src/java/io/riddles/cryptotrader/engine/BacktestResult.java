@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import java.util.ArrayList;
+
+import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor;
+import io.riddles.cryptotrader.game.state.CryptoTraderState;
+
+/**
+ * io.riddles.cryptotrader.engine.BacktestResult - Created on 18-10-26
+ *
+ * Outcome of a single backtest: the score and the complete state history,
+ * starting with the state after the given candles.
+ */
+public class BacktestResult {
+
+    private CryptoTraderEngine engine;
+    private CryptoTraderProcessor processor;
+    private CryptoTraderState initialState;
+    private CryptoTraderState finalState;
+    private int roundCount;
+
+    BacktestResult(CryptoTraderEngine engine, CryptoTraderProcessor processor,
+                   CryptoTraderState initialState, CryptoTraderState finalState, int roundCount) {
+        this.engine = engine;
+        this.processor = processor;
+        this.initialState = initialState;
+        this.finalState = finalState;
+        this.roundCount = roundCount;
+    }
+
+    public double getScore() {
+        return this.processor.getScore(this.finalState);
+    }
+
+    public boolean isBotDisqualified() {
+        return this.finalState.isBotDisqualified();
+    }
+
+    public int getRoundCount() {
+        return this.roundCount;
+    }
+
+    public CryptoTraderState getInitialState() {
+        return this.initialState;
+    }
+
+    public CryptoTraderState getFinalState() {
+        return this.finalState;
+    }
+
+    /**
+     * Returns all states in order, the initial state first. States are
+     * not kept when the played game is streamed.
+     */
+    public ArrayList<CryptoTraderState> getStates() {
+        if (this.processor.getPlayedGameWriter() != null) {
+            throw new RuntimeException("States are not kept when the played game is streamed");
+        }
+
+        ArrayList<CryptoTraderState> states = new ArrayList<>(this.roundCount + 1);
+        CryptoTraderState state = this.initialState;
+        states.add(state);
+
+        while (state.hasNextState()) {
+            state = (CryptoTraderState) state.getNextState();
+            states.add(state);
+        }
+
+        return states;
+    }
+
+    /**
+     * Returns the played game as the engine would output it
+     */
+    public String getPlayedGame() {
+        return this.engine.getPlayedGame(this.initialState);
+    }
+}
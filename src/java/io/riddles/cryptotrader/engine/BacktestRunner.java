@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.game.player.CryptoTraderPlayer;
+import io.riddles.cryptotrader.game.player.StrategyPlayer;
+import io.riddles.cryptotrader.game.player.TradingStrategy;
+import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor;
+import io.riddles.cryptotrader.game.state.CryptoTraderState;
+import io.riddles.javainterface.configuration.Configuration;
+import io.riddles.javainterface.exception.TerminalException;
+import io.riddles.javainterface.game.player.PlayerProvider;
+
+/**
+ * io.riddles.cryptotrader.engine.BacktestRunner - Created on 18-10-26
+ *
+ * Runs matches in-process against a TradingStrategy, without the match
+ * wrapper or a bot process. The dataset is read once and
+ * shared by all runs. The engine is driven the same way the game loop
+ * does, so a backtest gives the same result as a normal match.
+ *
+ * Each run gets its own settings and doesn't read the static engine
+ * configuration, so runs can be started from several threads at once.
+ */
+public class BacktestRunner {
+
+    private ChartSet charts;
+    private Configuration configuration;
+
+    public BacktestRunner(ChartSet charts) {
+        this.charts = charts;
+        this.configuration = CryptoTraderEngine.createDefaultConfiguration();
+        this.configuration.put("candleInterval", (int) charts.getInterval());
+    }
+
+    public BacktestRunner(String dataFile, int candleInterval) throws IOException {
+        this(CryptoTraderEngine.readDataFile(dataFile, candleInterval));
+    }
+
+    /**
+     * Overrides a default engine setting, e.g. givenCandles or
+     * transactionFeePercent, for all following runs
+     */
+    public BacktestRunner set(String key, Object value) {
+        this.configuration.put(key, value);
+        return this;
+    }
+
+    public BacktestResult run(TradingStrategy strategy) {
+        return run(strategy, new HashMap<>());
+    }
+
+    /**
+     * Runs a single match, with given settings on top of the settings of this runner
+     */
+    public BacktestResult run(TradingStrategy strategy, Map<String, Object> settings) {
+        Configuration configuration = new Configuration();
+        configuration.putAll(this.configuration);
+        configuration.putAll(settings);
+
+        return run(strategy, CryptoTraderSettings.fromConfiguration(configuration));
+    }
+
+    public BacktestResult run(TradingStrategy strategy, CryptoTraderSettings settings) {
+        PlayerProvider<CryptoTraderPlayer> playerProvider = new PlayerProvider<>();
+        StrategyPlayer player = new StrategyPlayer(0, strategy);
+        playerProvider.add(player);
+
+        CryptoTraderEngine engine;
+        try {
+            engine = new CryptoTraderEngine(
+                    playerProvider, new BacktestIOHandler(), this.charts, settings);
+        } catch (TerminalException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        CryptoTraderProcessor processor = engine.startProcessor();
+        engine.sendSettingsToPlayer(player);
+
+        CryptoTraderState initialState = engine.getInitialState();
+        CryptoTraderState state = initialState;
+        int roundNumber = 0;
+
+        while (!processor.hasGameEnded(state)) {
+            roundNumber++;
+            state = processor.createNextState(state, roundNumber);
+        }
+
+        return new BacktestResult(engine, processor, initialState, state, roundNumber);
+    }
+
+    public ChartSet getCharts() {
+        return this.charts;
+    }
+}
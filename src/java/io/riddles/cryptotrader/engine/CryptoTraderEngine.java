@@ -19,24 +19,30 @@
 
 package io.riddles.cryptotrader.engine;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 import io.riddles.cryptotrader.CryptoTrader;
-import io.riddles.cryptotrader.data.Candle;
-import io.riddles.cryptotrader.data.Chart;
+import io.riddles.cryptotrader.data.BinaryChartReader;
+import io.riddles.cryptotrader.data.CandleSubscription;
+import io.riddles.cryptotrader.data.CandleUpdate;
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.data.ChartWindow;
+import io.riddles.cryptotrader.data.CsvChartReader;
+import io.riddles.cryptotrader.data.IndicatorSet;
+import io.riddles.cryptotrader.game.CheckpointWriter;
 import io.riddles.cryptotrader.game.CryptoTraderSerializer;
+import io.riddles.cryptotrader.game.PlayedGameWriter;
 import io.riddles.cryptotrader.game.player.CryptoTraderPlayer;
 import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor;
+import io.riddles.cryptotrader.game.state.Checkpoint;
 import io.riddles.cryptotrader.game.state.CryptoTraderPlayerState;
 import io.riddles.cryptotrader.game.state.CryptoTraderState;
 import io.riddles.javainterface.configuration.Configuration;
@@ -56,8 +62,12 @@ import io.riddles.javainterface.io.IOInterface;
  */
 public class CryptoTraderEngine extends AbstractEngine<CryptoTraderProcessor, CryptoTraderPlayer, CryptoTraderState> {
 
-    private HashMap<String, Chart> charts;
-    private String candleFormat;
+    private ChartSet charts;
+    private CryptoTraderSettings settings;
+    private ChartWindow window;
+    private CandleSubscription subscription;
+    private IndicatorSet indicators; // null if bots don't receive indicators
+    private Checkpoint checkpoint; // null if the match isn't resumed
 
     public CryptoTraderEngine(
             PlayerProvider<CryptoTraderPlayer> playerProvider,
@@ -66,24 +76,76 @@ public class CryptoTraderEngine extends AbstractEngine<CryptoTraderProcessor, Cr
         super(playerProvider, ioHandler);
     }
 
+    /**
+     * Creates an engine that uses already loaded charts and given settings
+     * instead of reading the data file and the configuration, so a dataset
+     * can be shared between matches
+     */
+    public CryptoTraderEngine(
+            PlayerProvider<CryptoTraderPlayer> playerProvider,
+            IOInterface ioHandler,
+            ChartSet charts,
+            CryptoTraderSettings settings
+    ) throws TerminalException {
+        super(playerProvider, ioHandler);
+        this.charts = charts;
+        this.settings = settings;
+    }
+
     @Override
     protected Configuration getDefaultConfiguration() {
+        return createDefaultConfiguration();
+    }
+
+    public static Configuration createDefaultConfiguration() {
         Configuration configuration = new Configuration();
 
         configuration.put("dataFile", "/data.csv");
         configuration.put("candleInterval", 1800);
         configuration.put("initialStack", 1000);
         configuration.put("givenCandles", 336); // 1 week given beforehand
+        configuration.put("startTimestamp", -1); // first candle of the match, -1 for the first in the data
+        configuration.put("endTimestamp", -1); // last candle of the match, -1 for the last in the data
+        configuration.put("subscribedPairs", ""); // comma separated pairs bots receive candles of, empty for all
+        configuration.put("subscribedKeys", ""); // comma separated candle format keys bots receive, empty for all
+        configuration.put("candleAggregations", ""); // comma separated multiples of candleInterval bots also receive candles of
+        configuration.put("indicators", ""); // comma separated indicators bots receive, like sma_20,rsi_14, empty for none
         configuration.put("transactionFeePercent", 0.2);
+        configuration.put("ledger", "decimal"); // decimal, fixed or crosscheck
+        configuration.put("history", "off"); // off, rows or columns, sends the given candles as one update
+        configuration.put("playedGame", "memory"); // memory or stream
+        configuration.put("metrics", "off"); // off or on, adds phase latencies to the played game
+        configuration.put("moveCollection", "sequential"); // sequential or concurrent, only for in-process players
+        configuration.put("stacksUpdates", "full"); // full or delta, only changed stacks after the first round
+        configuration.put("checkpointFile", ""); // file to write checkpoints to and resume from, empty for none
+        configuration.put("checkpointInterval", 1000); // rounds between checkpoints
 
         return configuration;
     }
 
     @Override
     protected CryptoTraderProcessor createProcessor() {
-        readDataFile(); // Must be called before sendSettingsToPlayer
+        if (this.settings == null) {
+            this.settings = CryptoTraderSettings.fromConfiguration(configuration);
+        }
 
-        return new CryptoTraderProcessor(this.playerProvider, this.charts);
+        if (this.charts == null) {
+            readDataFile(); // Must be called before sendSettingsToPlayer
+        }
+
+        CryptoTraderProcessor processor = new CryptoTraderProcessor(
+                this.playerProvider, this.charts, this.settings);
+        this.window = processor.getWindow();
+        this.subscription = processor.getSubscription();
+        this.indicators = processor.getIndicators();
+
+        if (this.settings.isCheckpointEnabled()) {
+            startCheckpoints(processor);
+        } else if (this.settings.isPlayedGameStreamed()) {
+            processor.setPlayedGameWriter(new PlayedGameWriter());
+        }
+
+        return processor;
     }
 
     @Override
@@ -98,139 +160,214 @@ public class CryptoTraderEngine extends AbstractEngine<CryptoTraderProcessor, Cr
 
     @Override
     protected void sendSettingsToPlayer(CryptoTraderPlayer player) {
-        Chart chart = new ArrayList<>(this.charts.values()).get(0);
+        player.sendSetting("candle_interval", this.settings.getCandleInterval());
+        player.sendSetting("candle_format", this.subscription.getCandleFormat());
+        player.sendSetting("candles_total", this.window.size());
+        player.sendSetting("candles_given", this.settings.getGivenCandles());
+
+        if (this.subscription.getAggregationIntervals().length > 0) {
+            player.sendSetting("candle_aggregations", String.join(",", Arrays.stream(
+                    this.subscription.getAggregationIntervals()).mapToObj(Long::toString).toArray(String[]::new)));
+        }
+
+        player.sendSetting("initial_stack", this.settings.getInitialStack());
+        player.sendSetting("transaction_fee_percent", this.settings.getTransactionFeePercent() + "");
+
+        if (this.settings.getHistory() != CryptoTraderSettings.History.OFF) {
+            player.sendSetting("history_format", this.settings.getHistory().toString().toLowerCase());
+        }
+
+        if (this.settings.isStacksDeltaEnabled()) {
+            player.sendSetting("stacks_updates", "delta");
+        }
 
-        player.sendSetting("candle_interval", configuration.getInt("candleInterval"));
-        player.sendSetting("candle_format", this.candleFormat);
-        player.sendSetting("candles_total", chart.getCandles().size());
-        player.sendSetting("candles_given", configuration.getInt("givenCandles"));
-        player.sendSetting("initial_stack", configuration.getInt("initialStack"));
-        player.sendSetting("transaction_fee_percent",
-                configuration.getDouble("transactionFeePercent") + "");
+        if (this.indicators != null) {
+            player.sendSetting("indicator_format", this.indicators.getIndicatorFormat());
+        }
     }
 
     @Override
     protected CryptoTraderState getInitialState() {
+        if (this.checkpoint != null) {
+            return getResumedState();
+        }
+
         ArrayList<CryptoTraderPlayerState> playerStates = new ArrayList<>();
 
-        Chart chart = new ArrayList<>(this.charts.values()).get(0);
-        Date earliestDate = chart.getCandles().values().stream()
-                .map(Candle::getDate)
-                .min(Date::compareTo)
-                .orElseThrow(() -> new RuntimeException("Can't find earliest candle date"));
+        Date earliestDate = this.window.getFirstDate();
 
         for (CryptoTraderPlayer player : this.playerProvider.getPlayers()) {
             int id = player.getId();
             CryptoTraderPlayerState playerState = new CryptoTraderPlayerState(
-                    id, earliestDate, this.charts);
+                    id, earliestDate, this.charts, this.settings);
 
             playerStates.add(playerState);
         }
 
         long lastTimestamp = earliestDate.getTime() +
-                (configuration.getInt("givenCandles") * configuration.getInt("candleInterval"));
+                (this.settings.getGivenCandles() * this.settings.getCandleInterval());
 
         // Send candles to player before the game starts
         sendFirstUpdatesToPlayers(earliestDate.getTime(), lastTimestamp);
 
-        return new CryptoTraderState(playerStates, new Date(lastTimestamp));
+        return new CryptoTraderState(playerStates, new Date(lastTimestamp), this.settings);
+    }
+
+    /**
+     * Creates the processor and keeps it on the engine, the same way the
+     * game loop does, for matches that are driven in-process
+     */
+    CryptoTraderProcessor startProcessor() {
+        this.processor = createProcessor();
+        return this.processor;
     }
 
     @Override
     protected String getPlayedGame(CryptoTraderState initialState) {
+        CheckpointWriter checkpointWriter = this.processor.getCheckpointWriter();
+        PlayedGameWriter playedGameWriter = this.processor.getPlayedGameWriter();
+
+        if (checkpointWriter != null) {
+            checkpointWriter.finish(); // The match is over, so it shouldn't be resumed anymore
+        }
+
+        if (playedGameWriter != null) {
+            return playedGameWriter.finish(this.processor, initialState);
+        }
+
         CryptoTraderSerializer serializer = new CryptoTraderSerializer();
         return serializer.traverseToString(this.processor, initialState);
     }
 
-    private void readDataFile() {
-        this.charts = new HashMap<>();
-
-        try {
-            InputStream fileInputStream;
-            String filePath = configuration.getString("dataFile");
+    /**
+     * Reads a binary or CSV data file, or a CSV resource if there
+     * is no file at given path
+     */
+    public static ChartSet readDataFile(String filePath, long interval) throws IOException {
+        File file = new File(filePath);
+
+        if (file.isFile()) {
+            return BinaryChartReader.isBinaryFile(file)
+                    ? new BinaryChartReader(interval).read(file)
+                    : new CsvChartReader(interval).read(file);
+        }
 
-            try {
-                fileInputStream = new FileInputStream(filePath);
-            } catch (FileNotFoundException ex) {
-                fileInputStream = CryptoTrader.class.getResourceAsStream(filePath);
+        try (InputStream inputStream = CryptoTrader.class.getResourceAsStream(filePath)) {
+            if (inputStream == null) {
+                throw new FileNotFoundException(filePath);
             }
 
-            BufferedReader br = new BufferedReader(new InputStreamReader(fileInputStream));
-            String line;
-            String[] candleFormat = null;
+            return new CsvChartReader(interval).read(inputStream);
+        }
+    }
 
-            while ((line = br.readLine()) != null) {
-                if (candleFormat == null) { // First line only
-                    this.candleFormat = line;
-                    candleFormat = this.candleFormat.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-                } else { // Candle data
-                    addCandleToCharts(new Candle(candleFormat, line));
-                }
-            }
+    private void readDataFile() {
+        try {
+            this.charts = readDataFile(
+                    this.settings.getDataFile(), this.settings.getCandleInterval());
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, ex.toString(), ex);
             System.exit(1);
         }
-
-        validateChartData();
     }
 
-    private void addCandleToCharts(Candle candle) {
-        Chart currentChart = this.charts.get(candle.getPair());
+    /**
+     * Resumes the match from the checkpoint file if there is one. With
+     * checkpoints the played game is always streamed, to a file next to
+     * the checkpoint file, so it can be continued as well.
+     */
+    private void startCheckpoints(CryptoTraderProcessor processor) {
+        File checkpointFile = new File(this.settings.getCheckpointFile());
+        File statesFile = new File(checkpointFile.getPath() + ".states");
+        long position = 0;
+
+        if (checkpointFile.isFile()) {
+            try {
+                this.checkpoint = Checkpoint.read(checkpointFile, this.charts, this.settings);
+            } catch (IOException ex) {
+                throw new RuntimeException("Can't read checkpoint " + checkpointFile, ex);
+            }
 
-        if (currentChart == null) {
-            currentChart = new Chart();
-            this.charts.put(candle.getPair(), currentChart);
+            processor.resumeFrom(this.checkpoint);
+            position = this.checkpoint.getPlayedGamePosition();
         }
 
-        currentChart.addCandle(candle);
+        processor.setPlayedGameWriter(new PlayedGameWriter(statesFile, position));
+        processor.setCheckpointWriter(new CheckpointWriter(checkpointFile));
     }
 
-    private void validateChartData() {
-        this.charts.forEach((pair, chart) -> {
-            int size = new ArrayList<>(this.charts.values()).get(0).getCandles().size();
+    /**
+     * Returns the state of the checkpoint as initial state. The bots are
+     * started again, so they first get the given candles up to the
+     * checkpoint, or fewer if the match hasn't gone that far yet.
+     */
+    private CryptoTraderState getResumedState() {
+        int playerCount = this.playerProvider.getPlayers().size();
+        long timestamp = this.checkpoint.getTimestamp();
+
+        if (this.checkpoint.getPlayerStates().size() != playerCount) {
+            throw new RuntimeException(String.format("Checkpoint has %d players, the match has %d",
+                    this.checkpoint.getPlayerStates().size(), playerCount));
+        }
 
-            if (chart.getCandles().size() != size) {
-                throw new RuntimeException("Charts don't have a equal amount of candles.");
-            }
+        if (timestamp < this.window.getFirstTimestamp() || timestamp > this.window.getLastTimestamp()) {
+            throw new RuntimeException("Checkpoint is outside of the match window");
+        }
 
-            long lastTimeStamp = -1;
-            ArrayList<Candle> sortedCandles = new ArrayList<>(chart.getCandles().values()).stream()
-                    .sorted(Comparator.comparing(Candle::getDate))
-                    .collect(Collectors.toCollection(ArrayList::new));
+        long givenDuration = (long) this.settings.getGivenCandles() * this.settings.getCandleInterval();
+        long earliestTimestamp = Math.max(this.window.getFirstTimestamp(), timestamp - givenDuration);
 
-            for (Candle candle : sortedCandles) {
-                if (lastTimeStamp < 0) {
-                    lastTimeStamp = candle.getDate().getTime();
-                    continue;
-                }
+        sendFirstUpdatesToPlayers(earliestTimestamp, timestamp);
 
-                long newTimeStamp = lastTimeStamp + configuration.getInt("candleInterval");
+        return this.checkpoint.createState(this.settings);
+    }
 
-                if (candle.getDate().getTime() != newTimeStamp) {
-                    throw new RuntimeException("Candle timestamps are not according to settings");
-                }
+    private void sendFirstUpdatesToPlayers(long earliestTimestamp, long lastTimestamp) {
+        CryptoTraderSettings.History history = this.settings.getHistory();
 
-                lastTimeStamp = newTimeStamp;
+        if (history != CryptoTraderSettings.History.OFF) {
+            String historyMessage = history == CryptoTraderSettings.History.ROWS
+                    ? this.subscription.getHistoryRows(earliestTimestamp, lastTimestamp)
+                    : this.subscription.getHistoryColumns(earliestTimestamp, lastTimestamp);
+
+            for (CryptoTraderPlayer player : this.playerProvider.getPlayers()) {
+                player.sendUpdate("history", historyMessage);
             }
-        });
-    }
+        }
 
-    private void sendFirstUpdatesToPlayers(long earliestTimestamp, long lastTimestamp) {
         long timestamp = earliestTimestamp;
 
         while (timestamp <= lastTimestamp) { // non-inclusive last timestamp
-            for (CryptoTraderPlayer player : this.playerProvider.getPlayers()) {
-                long finalTimestamp = timestamp;
+            // Aggregated candles aren't part of the history, so they're still sent one by one
+            List<CandleUpdate> candleUpdates = history != CryptoTraderSettings.History.OFF
+                    ? this.subscription.getAggregatedUpdates(timestamp)
+                    : this.subscription.getCandleUpdates(timestamp);
 
-                String candleString = this.charts.values().stream()
-                        .map(chart -> chart.getChandleAt(new Date(finalTimestamp)).toString())
-                        .collect(Collectors.joining(";"));
+            for (CryptoTraderPlayer player : this.playerProvider.getPlayers()) {
+                for (CandleUpdate candleUpdate : candleUpdates) {
+                    player.sendUpdate(candleUpdate.getType(), candleUpdate.getMessage());
+                }
+            }
 
-                player.sendUpdate("next_candles", candleString);
+            // With a history, only the indicators of the last candle are sent, as the
+            // indicators of earlier candles can also be computed from the history
+            if (history == CryptoTraderSettings.History.OFF || timestamp == lastTimestamp) {
+                sendIndicatorsToPlayers(timestamp);
             }
 
-            timestamp += configuration.getInt("candleInterval");
+            timestamp += this.settings.getCandleInterval();
+        }
+    }
+
+    private void sendIndicatorsToPlayers(long timestamp) {
+        if (this.indicators == null) {
+            return;
+        }
+
+        String indicatorMessage = this.indicators.getIndicatorMessage(timestamp);
+
+        for (CryptoTraderPlayer player : this.playerProvider.getPlayers()) {
+            player.sendUpdate("indicators", indicatorMessage);
         }
     }
 }
@@ -0,0 +1,324 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.riddles.javainterface.configuration.Configuration;
+
+/**
+ * io.riddles.cryptotrader.engine.CryptoTraderSettings - Created on 18-10-26
+ *
+ * Immutable settings of a single match, resolved once from the engine
+ * configuration. Passed to the processor, states and serializers instead
+ * of reading the static configuration, so matches with different settings
+ * can run at the same time.
+ */
+public final class CryptoTraderSettings {
+
+    public enum Ledger {
+        DECIMAL, FIXED, CROSSCHECK
+    }
+
+    public enum History {
+        OFF, ROWS, COLUMNS
+    }
+
+    private final String dataFile;
+    private final int candleInterval;
+    private final int initialStack;
+    private final int givenCandles;
+    private final long startTimestamp;
+    private final long endTimestamp;
+    private final List<String> subscribedPairs;
+    private final List<String> subscribedKeys;
+    private final List<Integer> candleAggregations;
+    private final List<String> indicators;
+    private final double transactionFeePercent;
+    private final BigDecimal transactionFee;
+    private final Ledger ledger;
+    private final History history;
+    private final boolean isPlayedGameStreamed;
+    private final boolean isMetricsEnabled;
+    private final boolean isMoveCollectionConcurrent;
+    private final boolean isStacksDeltaEnabled;
+    private final String checkpointFile;
+    private final int checkpointInterval;
+
+    private CryptoTraderSettings(Configuration configuration) {
+        String playedGame = configuration.getString("playedGame");
+        String metrics = configuration.getString("metrics");
+        String moveCollection = configuration.getString("moveCollection");
+        String stacksUpdates = configuration.getString("stacksUpdates");
+
+        if (!playedGame.equals("memory") && !playedGame.equals("stream")) {
+            throw new RuntimeException(String.format("Unknown playedGame setting '%s'", playedGame));
+        }
+
+        if (!metrics.equals("off") && !metrics.equals("on")) {
+            throw new RuntimeException(String.format("Unknown metrics setting '%s'", metrics));
+        }
+
+        if (!moveCollection.equals("sequential") && !moveCollection.equals("concurrent")) {
+            throw new RuntimeException(String.format("Unknown moveCollection setting '%s'", moveCollection));
+        }
+
+        if (!stacksUpdates.equals("full") && !stacksUpdates.equals("delta")) {
+            throw new RuntimeException(String.format("Unknown stacksUpdates setting '%s'", stacksUpdates));
+        }
+
+        if (!configuration.getString("checkpointFile").isEmpty()
+                && configuration.getInt("checkpointInterval") <= 0) {
+            throw new RuntimeException("checkpointInterval should be greater than 0");
+        }
+
+        this.dataFile = configuration.getString("dataFile");
+        this.candleInterval = configuration.getInt("candleInterval");
+        this.initialStack = configuration.getInt("initialStack");
+        this.givenCandles = configuration.getInt("givenCandles");
+        this.startTimestamp = getLong(configuration, "startTimestamp");
+        this.endTimestamp = getLong(configuration, "endTimestamp");
+        this.subscribedPairs = splitList(configuration.getString("subscribedPairs"));
+        this.subscribedKeys = splitList(configuration.getString("subscribedKeys"));
+        this.candleAggregations = parseCandleAggregations(configuration.get("candleAggregations"));
+        this.indicators = splitList(configuration.getString("indicators"));
+        this.transactionFeePercent = configuration.getDouble("transactionFeePercent");
+        this.transactionFee = BigDecimal.valueOf(this.transactionFeePercent / 100);
+        this.ledger = parseLedger(configuration.getString("ledger"));
+        this.history = parseHistory(configuration.getString("history"));
+        this.isPlayedGameStreamed = playedGame.equals("stream");
+        this.isMetricsEnabled = metrics.equals("on");
+        this.isMoveCollectionConcurrent = moveCollection.equals("concurrent");
+        this.isStacksDeltaEnabled = stacksUpdates.equals("delta");
+        this.checkpointFile = configuration.getString("checkpointFile");
+        this.checkpointInterval = configuration.getInt("checkpointInterval");
+    }
+
+    /**
+     * Resolves the settings of a match from given configuration, which
+     * should contain all keys of the default engine configuration
+     */
+    public static CryptoTraderSettings fromConfiguration(Configuration configuration) {
+        return new CryptoTraderSettings(configuration);
+    }
+
+    public String getDataFile() {
+        return this.dataFile;
+    }
+
+    public int getCandleInterval() {
+        return this.candleInterval;
+    }
+
+    public int getInitialStack() {
+        return this.initialStack;
+    }
+
+    public int getGivenCandles() {
+        return this.givenCandles;
+    }
+
+    /**
+     * Returns the timestamp of the first candle of the match, -1 to start at the first candle
+     */
+    public long getStartTimestamp() {
+        return this.startTimestamp;
+    }
+
+    /**
+     * Returns the timestamp of the last candle of the match, -1 to end at the last candle
+     */
+    public long getEndTimestamp() {
+        return this.endTimestamp;
+    }
+
+    /**
+     * Returns the pairs bots receive candles of, empty for all pairs
+     */
+    public List<String> getSubscribedPairs() {
+        return this.subscribedPairs;
+    }
+
+    /**
+     * Returns the candle format keys bots receive, empty for all keys
+     */
+    public List<String> getSubscribedKeys() {
+        return this.subscribedKeys;
+    }
+
+    /**
+     * Returns the multiples of the candle interval bots also receive
+     * candles of, empty for none
+     */
+    public List<Integer> getCandleAggregations() {
+        return this.candleAggregations;
+    }
+
+    /**
+     * Returns the indicators bots receive every round, empty for none
+     */
+    public List<String> getIndicators() {
+        return this.indicators;
+    }
+
+    public double getTransactionFeePercent() {
+        return this.transactionFeePercent;
+    }
+
+    /**
+     * Returns the transaction fee as a fraction of the order value
+     */
+    public BigDecimal getTransactionFee() {
+        return this.transactionFee;
+    }
+
+    public Ledger getLedger() {
+        return this.ledger;
+    }
+
+    /**
+     * Returns how the given candles are sent before the match starts, OFF
+     * for one next_candles update per candle
+     */
+    public History getHistory() {
+        return this.history;
+    }
+
+    public boolean isPlayedGameStreamed() {
+        return this.isPlayedGameStreamed;
+    }
+
+    public boolean isMetricsEnabled() {
+        return this.isMetricsEnabled;
+    }
+
+    /**
+     * Returns whether moves of all players are requested at the same time
+     * each round, instead of one player after the other
+     */
+    public boolean isMoveCollectionConcurrent() {
+        return this.isMoveCollectionConcurrent;
+    }
+
+    /**
+     * Returns whether the stacks update after the first round only
+     * contains the stacks that changed, and is left out if none did
+     */
+    public boolean isStacksDeltaEnabled() {
+        return this.isStacksDeltaEnabled;
+    }
+
+    /**
+     * Returns the file the state of the match is regularly written to,
+     * empty if checkpoints are off
+     */
+    public String getCheckpointFile() {
+        return this.checkpointFile;
+    }
+
+    public boolean isCheckpointEnabled() {
+        return !this.checkpointFile.isEmpty();
+    }
+
+    /**
+     * Returns the number of rounds between two checkpoints
+     */
+    public int getCheckpointInterval() {
+        return this.checkpointInterval;
+    }
+
+    /**
+     * Reads a setting as a long, as timestamps can be past the int
+     * range and may also be given as text
+     */
+    private static long getLong(Configuration configuration, String key) {
+        Object value = configuration.get(key);
+
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+
+        try {
+            return Long.parseLong(String.valueOf(value).trim());
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException(String.format("Can't parse %s '%s'", key, value));
+        }
+    }
+
+    private static Ledger parseLedger(String ledger) {
+        try {
+            return Ledger.valueOf(ledger.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException(String.format("Unknown ledger setting '%s'", ledger));
+        }
+    }
+
+    private static History parseHistory(String history) {
+        try {
+            return History.valueOf(history.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException(String.format("Unknown history setting '%s'", history));
+        }
+    }
+
+    /**
+     * Reads the candle aggregations from a single number, or from text
+     * with comma separated numbers
+     */
+    private static List<Integer> parseCandleAggregations(Object value) {
+        ArrayList<Integer> candleAggregations = new ArrayList<>();
+
+        if (value instanceof Number) {
+            Number multiple = (Number) value;
+
+            if (multiple.doubleValue() != multiple.intValue()) {
+                throw new RuntimeException(String.format("Can't parse candle aggregation '%s'", multiple));
+            }
+
+            candleAggregations.add(multiple.intValue());
+            return Collections.unmodifiableList(candleAggregations);
+        }
+
+        for (String multiple : splitList(String.valueOf(value))) {
+            try {
+                candleAggregations.add(Integer.parseInt(multiple));
+            } catch (NumberFormatException ex) {
+                throw new RuntimeException(String.format("Can't parse candle aggregation '%s'", multiple));
+            }
+        }
+
+        return Collections.unmodifiableList(candleAggregations);
+    }
+
+    private static List<String> splitList(String value) {
+        ArrayList<String> values = new ArrayList<>();
+
+        for (String part : value.split(",")) {
+            if (!part.trim().isEmpty()) {
+                values.add(part.trim());
+            }
+        }
+
+        return Collections.unmodifiableList(values);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.game.move.CryptoTraderMove;
+import io.riddles.cryptotrader.game.move.CryptoTraderMoveDeserializer;
+import io.riddles.cryptotrader.game.state.CryptoTraderPlayerState;
+import io.riddles.javainterface.configuration.Configuration;
+import io.riddles.javainterface.exception.InvalidMoveException;
+
+/**
+ * io.riddles.cryptotrader.engine.MatchReplay - Created on 18-10-26
+ *
+ * Replays the moves of a finished match straight on a player state,
+ * without bots, players or I/O, and compares every round with what was
+ * recorded. Used to re-score archived matches after an engine change or
+ * with other settings, e.g. another transactionFeePercent.
+ *
+ * Rounds are read from the states of a played game, or from a move log,
+ * which only keeps a line "timestamp value move" per round. The move of
+ * a rejected round starts with '!'. Like in a played game, order amounts
+ * are rounded to 8 decimals.
+ */
+public class MatchReplay {
+
+    private ChartSet charts;
+    private Configuration configuration;
+
+    public MatchReplay(ChartSet charts) {
+        this.charts = charts;
+        this.configuration = CryptoTraderEngine.createDefaultConfiguration();
+        this.configuration.put("candleInterval", (int) charts.getInterval());
+    }
+
+    public MatchReplay(String dataFile, int candleInterval) throws IOException {
+        this(CryptoTraderEngine.readDataFile(dataFile, candleInterval));
+    }
+
+    /**
+     * Overrides a default engine setting, e.g. initialStack or
+     * transactionFeePercent, for all following replays
+     */
+    public MatchReplay set(String key, Object value) {
+        this.configuration.put(key, value);
+        return this;
+    }
+
+    public ReplayResult replay(List<RecordedRound> rounds) {
+        return replay(rounds, new HashMap<>());
+    }
+
+    /**
+     * Replays a single match, with given settings on top of the settings of this replay
+     */
+    public ReplayResult replay(List<RecordedRound> rounds, Map<String, Object> settings) {
+        Configuration configuration = new Configuration();
+        configuration.putAll(this.configuration);
+        configuration.putAll(settings);
+
+        return replay(rounds, CryptoTraderSettings.fromConfiguration(configuration));
+    }
+
+    public ReplayResult replay(List<RecordedRound> rounds, CryptoTraderSettings settings) {
+        if (rounds.isEmpty()) {
+            throw new RuntimeException("There are no rounds to replay");
+        }
+
+        CryptoTraderMoveDeserializer moveDeserializer = new CryptoTraderMoveDeserializer(this.charts);
+        CryptoTraderPlayerState playerState = new CryptoTraderPlayerState(
+                0, new Date(rounds.get(0).getTimestamp()), this.charts, settings);
+        ArrayList<ReplayResult.Difference> differences = new ArrayList<>();
+        boolean isBotDisqualified = false;
+        int roundNumber = 0;
+
+        for (RecordedRound round : rounds) {
+            roundNumber++;
+            Date date = new Date(round.getTimestamp());
+            CryptoTraderMove move = moveDeserializer.traverse(round.getMove(), date);
+
+            if (!move.isInvalid()) {
+                try {
+                    playerState.updateStack(move);
+                } catch (InvalidMoveException exception) {
+                    move.setException(exception);
+                }
+            }
+
+            playerState.updateStacksValue(date, this.charts);
+            isBotDisqualified = move.isInvalid();
+
+            compareRound(roundNumber, round, playerState, isBotDisqualified, differences);
+
+            if (isBotDisqualified) break;
+        }
+
+        double score = isBotDisqualified ? 0.0 : playerState.getStackValue();
+
+        return new ReplayResult(score, isBotDisqualified, roundNumber, differences);
+    }
+
+    public ChartSet getCharts() {
+        return this.charts;
+    }
+
+    /**
+     * Reads the rounds from the states of a played game. Only the states
+     * array is parsed, the charts are skipped.
+     */
+    public static List<RecordedRound> readPlayedGame(String playedGame) {
+        int statesIndex = playedGame.indexOf("\"states\":");
+
+        if (statesIndex < 0) {
+            throw new RuntimeException("Played game doesn't contain any states");
+        }
+
+        JSONTokener tokener = new JSONTokener(playedGame.substring(statesIndex + "\"states\":".length()));
+        JSONArray states = (JSONArray) tokener.nextValue();
+        ArrayList<RecordedRound> rounds = new ArrayList<>(states.length());
+
+        for (int i = 0; i < states.length(); i++) {
+            JSONObject state = states.getJSONObject(i);
+            boolean isRejected = state.has("exception");
+            String move = isRejected ? "" : "pass";
+
+            if (state.has("orders")) {
+                move = visitOrders(state.getJSONArray("orders"));
+            }
+
+            HashMap<String, Double> stacks = new HashMap<>();
+            JSONObject stacksObject = state.getJSONObject("stacks");
+
+            for (String symbol : stacksObject.keySet()) {
+                stacks.put(symbol, stacksObject.getDouble(symbol));
+            }
+
+            rounds.add(new RecordedRound(state.getLong("timestamp"), move, isRejected,
+                    state.getDouble("value"), stacks));
+        }
+
+        return rounds;
+    }
+
+    public static List<RecordedRound> readMoveLog(BufferedReader reader) throws IOException {
+        ArrayList<RecordedRound> rounds = new ArrayList<>();
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) continue;
+
+            String[] split = line.split(" ", 3);
+
+            if (split.length < 2) {
+                throw new RuntimeException(String.format("Can't parse move log line '%s'", line));
+            }
+
+            String move = split.length > 2 ? split[2] : "";
+            boolean isRejected = move.startsWith("!");
+
+            if (isRejected) {
+                move = move.substring(1);
+            }
+
+            rounds.add(new RecordedRound(Long.parseLong(split[0]), move, isRejected,
+                    Double.parseDouble(split[1]), null));
+        }
+
+        return rounds;
+    }
+
+    public static void writeMoveLog(List<RecordedRound> rounds, Writer writer) throws IOException {
+        for (RecordedRound round : rounds) {
+            writer.write(round.getTimestamp() + " " + round.getValue() + " "
+                    + (round.isRejected() ? "!" : "") + round.getMove() + "\n");
+        }
+    }
+
+    private void compareRound(int roundNumber, RecordedRound round, CryptoTraderPlayerState playerState,
+                              boolean isRejected, List<ReplayResult.Difference> differences) {
+        long timestamp = round.getTimestamp();
+
+        if (round.isRejected() != isRejected) {
+            differences.add(new ReplayResult.Difference(roundNumber, timestamp, "rejected",
+                    String.valueOf(round.isRejected()), String.valueOf(isRejected)));
+        }
+
+        if (!Double.isNaN(round.getValue()) && round.getValue() != playerState.getStackValue()) {
+            differences.add(new ReplayResult.Difference(roundNumber, timestamp, "value",
+                    String.valueOf(round.getValue()), String.valueOf(playerState.getStackValue())));
+        }
+
+        if (round.getStacks() == null) return;
+
+        playerState.getStacks().forEach((symbol, amount) -> {
+            Double recorded = round.getStacks().get(symbol);
+            double replayed = amount.setScale(8, RoundingMode.HALF_UP).doubleValue();
+
+            if (recorded == null || recorded != replayed) {
+                differences.add(new ReplayResult.Difference(roundNumber, timestamp, symbol,
+                        String.valueOf(recorded), String.valueOf(replayed)));
+            }
+        });
+    }
+
+    private static String visitOrders(JSONArray orders) {
+        StringBuilder move = new StringBuilder();
+
+        for (int i = 0; i < orders.length(); i++) {
+            JSONObject order = orders.getJSONObject(i);
+            BigDecimal amount = BigDecimal.valueOf(order.getDouble("amount"));
+
+            if (move.length() > 0) move.append(';');
+            move.append(order.getString("type")).append(' ')
+                    .append(order.getString("pair")).append(' ')
+                    .append(amount.toPlainString());
+        }
+
+        return move.toString();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import java.util.Map;
+
+/**
+ * io.riddles.cryptotrader.engine.RecordedRound - Created on 18-10-26
+ *
+ * A round of a finished match: the move the bot made, whether it was
+ * rejected, and the stacks and value that were recorded after it.
+ */
+public class RecordedRound {
+
+    private long timestamp;
+    private String move; // Same text as the bot output, empty if unknown
+    private boolean isRejected;
+    private double value; // NaN if not recorded
+    private Map<String, Double> stacks; // null if not recorded
+
+    public RecordedRound(long timestamp, String move, boolean isRejected, double value,
+                         Map<String, Double> stacks) {
+        this.timestamp = timestamp;
+        this.move = move;
+        this.isRejected = isRejected;
+        this.value = value;
+        this.stacks = stacks;
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public String getMove() {
+        return this.move;
+    }
+
+    /**
+     * Returns whether the move was rejected, which disqualified the bot
+     */
+    public boolean isRejected() {
+        return this.isRejected;
+    }
+
+    public double getValue() {
+        return this.value;
+    }
+
+    public Map<String, Double> getStacks() {
+        return this.stacks;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import java.util.List;
+
+/**
+ * io.riddles.cryptotrader.engine.ReplayResult - Created on 18-10-26
+ *
+ * Outcome of a replayed match, with every difference between the
+ * recorded and the replayed rounds.
+ */
+public class ReplayResult {
+
+    private double score;
+    private boolean isBotDisqualified;
+    private int roundCount;
+    private List<Difference> differences;
+
+    ReplayResult(double score, boolean isBotDisqualified, int roundCount, List<Difference> differences) {
+        this.score = score;
+        this.isBotDisqualified = isBotDisqualified;
+        this.roundCount = roundCount;
+        this.differences = differences;
+    }
+
+    public double getScore() {
+        return this.score;
+    }
+
+    public boolean isBotDisqualified() {
+        return this.isBotDisqualified;
+    }
+
+    /**
+     * Returns the number of replayed rounds, which is less than the number
+     * of recorded rounds if the replay got disqualified earlier
+     */
+    public int getRoundCount() {
+        return this.roundCount;
+    }
+
+    public List<Difference> getDifferences() {
+        return this.differences;
+    }
+
+    public boolean isEqual() {
+        return this.differences.isEmpty();
+    }
+
+    /**
+     * A recorded value that differs from the replayed one. The key is
+     * "value", "rejected" or the symbol of a stack.
+     */
+    public static class Difference {
+
+        private int roundNumber;
+        private long timestamp;
+        private String key;
+        private String recorded;
+        private String replayed;
+
+        Difference(int roundNumber, long timestamp, String key, String recorded, String replayed) {
+            this.roundNumber = roundNumber;
+            this.timestamp = timestamp;
+            this.key = key;
+            this.recorded = recorded;
+            this.replayed = replayed;
+        }
+
+        public int getRoundNumber() {
+            return this.roundNumber;
+        }
+
+        public long getTimestamp() {
+            return this.timestamp;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public String getRecorded() {
+            return this.recorded;
+        }
+
+        public String getReplayed() {
+            return this.replayed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("round %d (%d) %s: recorded %s, replayed %s",
+                    this.roundNumber, this.timestamp, this.key, this.recorded, this.replayed);
+        }
+    }
+}
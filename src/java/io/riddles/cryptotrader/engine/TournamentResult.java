@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+/**
+ * io.riddles.cryptotrader.engine.TournamentResult - Created on 18-10-26
+ *
+ * Outcome of a single tournament match. A match that threw an exception
+ * counts as disqualified with a score of 0.
+ */
+public class TournamentResult {
+
+    private String name;
+    private double score;
+    private boolean isBotDisqualified;
+    private int roundCount;
+    private long durationNanos;
+    private RuntimeException exception;
+
+    TournamentResult(String name, double score, boolean isBotDisqualified, int roundCount,
+                     long durationNanos, RuntimeException exception) {
+        this.name = name;
+        this.score = score;
+        this.isBotDisqualified = isBotDisqualified;
+        this.roundCount = roundCount;
+        this.durationNanos = durationNanos;
+        this.exception = exception;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public double getScore() {
+        return this.score;
+    }
+
+    public boolean isBotDisqualified() {
+        return this.isBotDisqualified;
+    }
+
+    public int getRoundCount() {
+        return this.roundCount;
+    }
+
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    public boolean isFailed() {
+        return this.exception != null;
+    }
+
+    /**
+     * Returns the exception the match failed with, null if it finished normally
+     */
+    public RuntimeException getException() {
+        return this.exception;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.game.player.TradingStrategy;
+
+/**
+ * io.riddles.cryptotrader.engine.TournamentRunner - Created on 18-10-26
+ *
+ * Runs many backtests at the same time on a fixed number of worker
+ * threads. All matches share the charts of a single BacktestRunner, which
+ * are only read once loaded, so the dataset is in memory once no matter
+ * how many matches run. Every match has its own strategy and settings.
+ *
+ * Results are handed out in the order the matches finish. Only the
+ * outcome of a match is kept, so its states can be collected as soon as
+ * it's done.
+ */
+public class TournamentRunner {
+
+    private BacktestRunner runner;
+    private int threadCount;
+    private ArrayList<Match> matches;
+
+    public TournamentRunner(BacktestRunner runner, int threadCount) {
+        if (threadCount < 1) {
+            throw new RuntimeException("Tournament needs at least one thread");
+        }
+
+        this.runner = runner;
+        this.threadCount = threadCount;
+        this.matches = new ArrayList<>();
+    }
+
+    public TournamentRunner(ChartSet charts) {
+        this(new BacktestRunner(charts), Runtime.getRuntime().availableProcessors());
+    }
+
+    public TournamentRunner add(String name, TradingStrategy strategy) {
+        return add(name, strategy, new HashMap<>());
+    }
+
+    /**
+     * Adds a match with given settings on top of the settings of the backtest
+     * runner. Each match needs its own strategy instance.
+     */
+    public TournamentRunner add(String name, TradingStrategy strategy, Map<String, Object> settings) {
+        this.matches.add(new Match(name, strategy, settings));
+        return this;
+    }
+
+    public ArrayList<TournamentResult> run() {
+        return run(result -> {});
+    }
+
+    /**
+     * Runs all added matches and returns their results in the order they
+     * finished. Given callback is called on the calling thread for each
+     * result as soon as its match is done.
+     */
+    public ArrayList<TournamentResult> run(Consumer<TournamentResult> onFinished) {
+        ArrayList<Match> matches = this.matches;
+        this.matches = new ArrayList<>();
+
+        ExecutorService executor = createExecutor(Math.min(this.threadCount, Math.max(matches.size(), 1)));
+        CompletionService<TournamentResult> completionService = new ExecutorCompletionService<>(executor);
+        ArrayList<TournamentResult> results = new ArrayList<>(matches.size());
+
+        try {
+            for (Match match : matches) {
+                completionService.submit(() -> runMatch(match));
+            }
+
+            for (int i = 0; i < matches.size(); i++) {
+                TournamentResult result = completionService.take().get();
+
+                results.add(result);
+                onFinished.accept(result);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    public BacktestRunner getRunner() {
+        return this.runner;
+    }
+
+    private TournamentResult runMatch(Match match) {
+        long start = System.nanoTime();
+
+        try {
+            BacktestResult result = this.runner.run(match.strategy, match.settings);
+
+            return new TournamentResult(match.name, result.getScore(), result.isBotDisqualified(),
+                    result.getRoundCount(), System.nanoTime() - start, null);
+        } catch (RuntimeException ex) {
+            return new TournamentResult(match.name, 0.0, true, 0, System.nanoTime() - start, ex);
+        }
+    }
+
+    private static ExecutorService createExecutor(int threadCount) {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class Match {
+
+        private String name;
+        private TradingStrategy strategy;
+        private Map<String, Object> settings;
+
+        private Match(String name, TradingStrategy strategy, Map<String, Object> settings) {
+            this.name = name;
+            this.strategy = strategy;
+            this.settings = settings;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+import io.riddles.cryptotrader.engine.CryptoTraderEngine;
+import io.riddles.cryptotrader.game.state.Checkpoint;
+
+/**
+ * io.riddles.cryptotrader.game.CheckpointWriter - Created on 18-10-26
+ *
+ * Writes checkpoints of a match on a background thread, so the rounds
+ * don't wait for the disk. If a checkpoint is taken while the previous
+ * one is still waiting to be written, only the newest one is written.
+ * A checkpoint that can't be written is logged and the match continues.
+ */
+public class CheckpointWriter {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private File file;
+    private AtomicReference<Checkpoint> pendingCheckpoint;
+    private Future<?> lastWrite;
+
+    public CheckpointWriter(File file) {
+        this.file = file;
+        this.pendingCheckpoint = new AtomicReference<>();
+    }
+
+    public void write(Checkpoint checkpoint) {
+        if (this.pendingCheckpoint.getAndSet(checkpoint) == null) {
+            this.lastWrite = EXECUTOR.submit(this::writePendingCheckpoint);
+        }
+    }
+
+    /**
+     * Waits for the checkpoint that is being written and removes the
+     * checkpoint file, once the match is over and can't be resumed anymore
+     */
+    public void finish() {
+        this.pendingCheckpoint.set(null);
+
+        if (this.lastWrite != null) {
+            try {
+                this.lastWrite.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                CryptoTraderEngine.LOGGER.log(Level.WARNING, "Checkpoint writer failed", ex.getCause());
+            }
+        }
+
+        this.file.delete();
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    private void writePendingCheckpoint() {
+        Checkpoint checkpoint = this.pendingCheckpoint.getAndSet(null);
+
+        if (checkpoint == null) return;
+
+        try {
+            checkpoint.write(this.file);
+        } catch (IOException ex) {
+            CryptoTraderEngine.LOGGER.log(Level.WARNING, "Can't write checkpoint " + this.file, ex);
+        }
+    }
+}
@@ -23,17 +23,18 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 
 import io.riddles.cryptotrader.data.Candle;
 import io.riddles.cryptotrader.data.Chart;
-import io.riddles.cryptotrader.engine.CryptoTraderEngine;
+import io.riddles.cryptotrader.data.ChartWindow;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
 import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor;
 import io.riddles.cryptotrader.game.state.CryptoTraderPlayerState;
 import io.riddles.cryptotrader.game.state.CryptoTraderState;
 import io.riddles.cryptotrader.game.state.CryptoTraderStateSerializer;
+import io.riddles.cryptotrader.metrics.MatchMetrics;
 import io.riddles.javainterface.game.AbstractGameSerializer;
 
 /**
@@ -47,10 +48,11 @@ public class CryptoTraderSerializer extends AbstractGameSerializer<CryptoTraderP
 
     @Override
     public String traverseToString(CryptoTraderProcessor processor, CryptoTraderState initialState) {
-        CryptoTraderStateSerializer serializer = new CryptoTraderStateSerializer();
+        MatchMetrics metrics = processor.getMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
 
-        JSONObject game = new JSONObject();
-        game = addDefaultJSON(initialState, game, processor);
+        CryptoTraderStateSerializer serializer = new CryptoTraderStateSerializer();
+        JSONObject game = createGameObject(processor, initialState);
 
         JSONArray states = new JSONArray();
         CryptoTraderState state = initialState;
@@ -59,24 +61,40 @@ public class CryptoTraderSerializer extends AbstractGameSerializer<CryptoTraderP
             states.put(serializer.traverseToJson(state));
         }
 
-        game.put("charts", visitCharts(processor.getCharts()));
         game.put("states", states);
 
+        if (metrics != null) {
+            metrics.record(MatchMetrics.Phase.SERIALIZATION, start);
+            game.put("metrics", metrics.toJson());
+        }
+
         return game.toString();
     }
 
-    private JSONObject visitCharts(HashMap<String, Chart> charts) {
+    /**
+     * Returns the played game without the states
+     */
+    public JSONObject createGameObject(CryptoTraderProcessor processor, CryptoTraderState initialState) {
+        JSONObject game = new JSONObject();
+        game = addDefaultJSON(initialState, game, processor);
+        game.put("charts", visitCharts(processor.getCharts(), processor.getWindow(), processor.getSettings()));
+
+        return game;
+    }
+
+    private JSONObject visitCharts(HashMap<String, Chart> charts, ChartWindow window,
+                                   CryptoTraderSettings settings) {
         JSONObject chartsObject = new JSONObject();
 
-        Date firstDate = getFirstDate(charts);
-        int interval = CryptoTraderEngine.configuration.getInt("candleInterval");
+        Date firstDate = window.getFirstDate();
+        int interval = settings.getCandleInterval();
 
         charts.forEach((pair, chart) -> {
             JSONArray candles = new JSONArray();
             Date date = firstDate;
             Candle candle = chart.getChandleAt(date);
 
-            while (candle != null) {
+            while (candle != null && date.getTime() <= window.getLastTimestamp()) {
                 JSONObject candleObject = new JSONObject();
                 candleObject.put("timestamp", date.getTime());
 
@@ -101,13 +119,4 @@ public class CryptoTraderSerializer extends AbstractGameSerializer<CryptoTraderP
 
         return chartsObject;
     }
-
-    private Date getFirstDate(HashMap<String, Chart> charts) {
-        Chart chart = new ArrayList<>(charts.values()).get(0);
-
-        return chart.getCandles().values().stream()
-                .map(Candle::getDate)
-                .min(Date::compareTo)
-                .orElseThrow(() -> new RuntimeException("Can't find first candle date"));
-    }
 }
@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor;
+import io.riddles.cryptotrader.game.state.CryptoTraderState;
+import io.riddles.cryptotrader.game.state.CryptoTraderStateSerializer;
+import io.riddles.cryptotrader.metrics.MatchMetrics;
+
+/**
+ * io.riddles.cryptotrader.game.PlayedGameWriter - Created on 18-10-26
+ *
+ * Streaming alternative to CryptoTraderSerializer. Each state is written
+ * to a temporary file as soon as its round is processed, so the state can
+ * be released. At the end the states are put in the played game at the
+ * place of a marker, which gives exactly the same output as
+ * CryptoTraderSerializer.
+ */
+public class PlayedGameWriter {
+
+    private CryptoTraderStateSerializer stateSerializer;
+    private File statesFile;
+    private Writer statesWriter;
+    private boolean isEmpty;
+    private boolean isWritten;
+    private String playedGame; // Cached by finish
+
+    public PlayedGameWriter() {
+        this.stateSerializer = new CryptoTraderStateSerializer();
+        this.isEmpty = true;
+
+        try {
+            this.statesFile = File.createTempFile("cryptotrader-states", ".json");
+            this.statesFile.deleteOnExit();
+            this.statesWriter = Files.newBufferedWriter(this.statesFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new RuntimeException("Can't create temporary file for the played game", ex);
+        }
+    }
+
+    /**
+     * Creates a writer that keeps the states in given file instead of a
+     * temporary one, after the first given number of bytes that were
+     * written before. Anything after that is removed, so a match resumed
+     * from a checkpoint continues right after the states of the checkpoint.
+     */
+    public PlayedGameWriter(File statesFile, long position) {
+        this.stateSerializer = new CryptoTraderStateSerializer();
+        this.statesFile = statesFile;
+        this.isEmpty = position == 0;
+
+        try (FileChannel channel = FileChannel.open(
+                statesFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() < position) {
+                throw new RuntimeException("Played game states file is shorter than the checkpoint");
+            }
+
+            channel.truncate(position);
+            this.statesWriter = Files.newBufferedWriter(
+                    statesFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new RuntimeException("Can't open file for the played game", ex);
+        }
+    }
+
+    public void addState(CryptoTraderState state) {
+        try {
+            if (!this.isEmpty) {
+                this.statesWriter.write(',');
+            }
+
+            this.statesWriter.write(this.stateSerializer.traverseToJson(state).toString());
+            this.isEmpty = false;
+        } catch (IOException ex) {
+            throw new RuntimeException("Can't write state to the played game", ex);
+        }
+    }
+
+    /**
+     * Flushes the states written so far and returns their length in bytes
+     */
+    public long flush() {
+        try {
+            this.statesWriter.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException("Can't write state to the played game", ex);
+        }
+
+        return this.statesFile.length();
+    }
+
+    /**
+     * Writes the played game to given writer and removes the temporary file,
+     * so it can only be written once, unless it was returned by finish
+     */
+    public void writeTo(Writer output, CryptoTraderProcessor processor, CryptoTraderState initialState) {
+        if (this.playedGame != null) {
+            try {
+                output.write(this.playedGame);
+                output.flush();
+            } catch (IOException ex) {
+                throw new RuntimeException("Can't write the played game", ex);
+            }
+            return;
+        }
+
+        if (this.isWritten) {
+            throw new RuntimeException("Played game is already written and its states are removed");
+        }
+        this.isWritten = true;
+
+        String marker = UUID.randomUUID().toString();
+        MatchMetrics metrics = processor.getMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+
+        JSONObject game = new CryptoTraderSerializer().createGameObject(processor, initialState);
+        game.put("states", marker);
+
+        if (metrics != null) {
+            metrics.record(MatchMetrics.Phase.SERIALIZATION, start);
+            game.put("metrics", metrics.toJson());
+        }
+
+        String gameString = game.toString();
+        String quotedMarker = JSONObject.quote(marker);
+        int markerIndex = gameString.indexOf(quotedMarker);
+
+        try {
+            this.statesWriter.close();
+
+            output.write(gameString, 0, markerIndex);
+            output.write('[');
+
+            try (Reader reader = Files.newBufferedReader(this.statesFile.toPath(), StandardCharsets.UTF_8)) {
+                char[] buffer = new char[1 << 16];
+                int read;
+
+                while ((read = reader.read(buffer)) >= 0) {
+                    output.write(buffer, 0, read);
+                }
+            }
+
+            output.write(']');
+            output.write(gameString, markerIndex + quotedMarker.length(),
+                    gameString.length() - markerIndex - quotedMarker.length());
+            output.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException("Can't write the played game", ex);
+        } finally {
+            this.statesFile.delete();
+        }
+    }
+
+    /**
+     * Returns the played game, which is only written once and returned
+     * again on every following call
+     */
+    public String finish(CryptoTraderProcessor processor, CryptoTraderState initialState) {
+        if (this.playedGame == null) {
+            StringWriter output = new StringWriter();
+            writeTo(output, processor, initialState);
+            this.playedGame = output.toString();
+        }
+
+        return this.playedGame;
+    }
+}
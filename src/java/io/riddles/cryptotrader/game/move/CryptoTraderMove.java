@@ -34,9 +34,20 @@ import io.riddles.javainterface.game.move.AbstractMove;
 public class CryptoTraderMove extends AbstractMove {
 
     private ArrayList<Order> orders;
+    private int passRounds;
 
     public CryptoTraderMove() {
         this.orders = new ArrayList<>();
+        this.passRounds = 1;
+    }
+
+    /**
+     * Creates a move that passes given number of rounds, starting
+     * with the current one
+     */
+    public CryptoTraderMove(int passRounds) {
+        this.orders = new ArrayList<>();
+        this.passRounds = passRounds;
     }
 
     public CryptoTraderMove(ArrayList<Order> orders) {
@@ -51,4 +62,13 @@ public class CryptoTraderMove extends AbstractMove {
     public ArrayList<Order> getOrders() {
         return this.orders;
     }
+
+    /**
+     * Returns the number of rounds this move passes, including the
+     * current one. The player isn't asked for a move in the other
+     * rounds. 1 for a single pass, 0 for orders.
+     */
+    public int getPassRounds() {
+        return this.passRounds;
+    }
 }
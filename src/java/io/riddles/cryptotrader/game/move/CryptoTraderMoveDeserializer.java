@@ -23,25 +23,41 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 
 import io.riddles.cryptotrader.data.Chart;
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.data.SymbolRegistry;
 import io.riddles.javainterface.exception.InvalidInputException;
 import io.riddles.javainterface.serialize.Deserializer;
 
 /**
  * io.riddles.cryptotrader.game.move.CryptoTraderMoveDeserializer - Created on 8-2-18
  *
- * [description]
+ * Parses bot output in a single pass with a cursor over the input, without
+ * splitting it into substrings. Orders are separated by ';' and consist of
+ * three parts separated by single spaces. The rules, including edge cases
+ * like a trailing ';', are the same as splitting the input with
+ * String.split and trimming each part. Pairs are resolved to their ids in
+ * the symbol registry, so duplicate pairs are found with a bitset.
+ *
+ * Amounts can have at most 18 decimals and their unscaled value has to fit
+ * in a long, so orders keep the exact amount.
+ *
+ * Next to orders and "pass", a bot can send "pass n" to pass the current
+ * round and the n - 1 rounds after it without being asked for a move.
  *
  * @author Jim van Eeden - jim@riddles.io
  */
 public class CryptoTraderMoveDeserializer implements Deserializer<CryptoTraderMove> {
 
-    private HashMap<String, Chart> charts;
+    private static final int MAX_FAST_DIGITS = 18;
+    private static final int MAX_AMOUNT_SCALE = 18;
+    private static final int AMOUNT_CHECK_SCALE = 6;
+
+    private SymbolRegistry registry;
 
-    public CryptoTraderMoveDeserializer(HashMap<String, Chart> charts) {
-        this.charts = charts;
+    public CryptoTraderMoveDeserializer(ChartSet charts) {
+        this.registry = charts.getRegistry();
     }
 
     @Override
@@ -60,75 +76,244 @@ public class CryptoTraderMoveDeserializer implements Deserializer<CryptoTraderMo
     }
 
     private CryptoTraderMove visitMove(String input, Date date) throws InvalidInputException {
-        if (MoveType.fromString(input) == MoveType.PASS) {
+        if (input == null) {
+            throw new InvalidInputException("Failed to parse action");
+        }
+
+        if (equalsLowerCase(input, 0, input.length(), "pass")) {
             return new CryptoTraderMove();
         }
 
-        String[] split = input.split(";");
+        int passEnd = trimEnd(input, 0, input.length());
+        if (indexOfSpace(input, 0, passEnd) == 4 && equalsLowerCase(input, 0, 4, "pass")
+                && indexOfSpace(input, 5, passEnd) < 0) {
+            return new CryptoTraderMove(visitPassRounds(input, 5, passEnd));
+        }
+
         ArrayList<Order> orders = new ArrayList<>();
+        long usedPairs = 0; // Bitset of the first 64 pair ids
+        long[] usedPairsOverflow = null;
+        boolean hasSeparator = input.indexOf(';') >= 0;
+        int length = input.length();
+        int start = 0;
+
+        while (start <= length) {
+            int end = input.indexOf(';', start);
+            if (end < 0) end = length;
+
+            // Like String.split, ignore the empty parts at the end of the input
+            if (end == start && hasSeparator && isOnlySeparators(input, start)) {
+                break;
+            }
+
+            // Trim the order, after which it should contain exactly two spaces
+            int orderStart = trimStart(input, start, end);
+            int orderEnd = trimEnd(input, orderStart, end);
+            int firstSpace = indexOfSpace(input, orderStart, orderEnd);
+            int secondSpace = firstSpace >= 0 ? indexOfSpace(input, firstSpace + 1, orderEnd) : -1;
+
+            if (secondSpace < 0 || indexOfSpace(input, secondSpace + 1, orderEnd) >= 0) {
+                throw new InvalidInputException("Order doesn't split into 3 parts");
+            }
+
+            MoveType type = visitMoveType(input, orderStart, firstSpace);
+            int pairId = visitPair(input, firstSpace + 1, secondSpace);
+            BigDecimal amount = visitAmount(input, secondSpace + 1, orderEnd);
+
+            Chart chart = this.registry.getChart(pairId);
+            int index = chart.getIndex(date.getTime());
+
+            if (index < 0) {
+                throw new InvalidInputException("Failed to parse action");
+            }
 
-        for (String orderString : split) {
-            Order order = visitOrder(orderString.trim(), date);
-            long existingPairOrders = orders.stream()
-                    .filter(o -> o.getPair().equals(order.getPair()))
-                    .count();
+            boolean isUsed;
+            if (pairId < 64) {
+                isUsed = (usedPairs & (1L << pairId)) != 0;
+                usedPairs |= 1L << pairId;
+            } else {
+                if (usedPairsOverflow == null) {
+                    usedPairsOverflow = new long[(this.registry.getPairCount() + 63) / 64];
+                }
 
-            if (existingPairOrders > 0) {
+                int word = pairId >>> 6;
+                isUsed = (usedPairsOverflow[word] & (1L << pairId)) != 0;
+                usedPairsOverflow[word] |= 1L << pairId;
+            }
+
+            if (isUsed) {
                 throw new InvalidInputException("Can't have more than one order per pair");
             }
 
-            orders.add(order);
+            orders.add(new Order(type, pairId, this.registry.getPair(pairId), amount, chart.getRate(index)));
+            start = end + 1;
         }
 
         return new CryptoTraderMove(orders);
     }
 
-    private Order visitOrder(String input, Date date) throws InvalidInputException {
-        String[] split = input.split(" ");
-
-        if (split.length != 3) {
-            throw new InvalidInputException("Order doesn't split into 3 parts");
+    private int visitPassRounds(String input, int start, int end) throws InvalidInputException {
+        int passRounds;
+        try {
+            passRounds = Integer.parseInt(input.substring(start, end));
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException(
+                    String.format("Can't parse pass rounds '%s'", input.substring(start, end)));
         }
 
-        MoveType type = visitMoveType(split[0].trim());
-        String pair = visitPair(split[1].trim());
-        BigDecimal amount = visitAmount(split[2].trim());
-        BigDecimal rate = this.charts.get(pair).getChandleAt(date).getRate();
+        if (passRounds <= 0) {
+            throw new InvalidInputException("Pass rounds must be greater than 0");
+        }
 
-        return new Order(type, pair, amount, rate);
+        return passRounds;
     }
 
-    private MoveType visitMoveType(String input) throws InvalidInputException {
-        MoveType moveType = MoveType.fromString(input);
+    private MoveType visitMoveType(String input, int start, int end) throws InvalidInputException {
+        start = trimStart(input, start, end);
+        end = trimEnd(input, start, end);
 
-        if (moveType == null) {
-            throw new InvalidInputException(String.format("Can't parse order type '%s'", input));
+        for (MoveType moveType : MoveType.values()) {
+            if (equalsLowerCase(input, start, end, moveType.toString())) {
+                return moveType;
+            }
         }
 
-        return moveType;
+        throw new InvalidInputException(
+                String.format("Can't parse order type '%s'", input.substring(start, end)));
     }
 
-    private String visitPair(String input) throws InvalidInputException {
-        if (!this.charts.keySet().contains(input)) {
-            throw new InvalidInputException(String.format("Unknown pair '%s'", input));
+    private int visitPair(String input, int start, int end) throws InvalidInputException {
+        start = trimStart(input, start, end);
+        end = trimEnd(input, start, end);
+
+        int pairId = this.registry.getPairId(input, start, end);
+
+        if (pairId < 0) {
+            throw new InvalidInputException(
+                    String.format("Unknown pair '%s'", input.substring(start, end)));
         }
 
-        return input;
+        return pairId;
     }
 
-    private BigDecimal visitAmount(String input) throws InvalidInputException {
-        BigDecimal amount;
+    private BigDecimal visitAmount(String input, int start, int end) throws InvalidInputException {
+        start = trimStart(input, start, end);
+        end = trimEnd(input, start, end);
 
-        try {
-            amount = new BigDecimal(input);
-        } catch (Exception e) {
-            throw new InvalidInputException(String.format("Can't parse amount '%s'", input));
+        BigDecimal amount = parsePlainDecimal(input, start, end);
+
+        if (amount == null) {
+            try {
+                amount = new BigDecimal(input.substring(start, end));
+            } catch (Exception e) {
+                throw new InvalidInputException(
+                        String.format("Can't parse amount '%s'", input.substring(start, end)));
+            }
         }
 
-        if (amount.setScale(6, RoundingMode.DOWN).doubleValue() <= 0) {
+        if (amount.setScale(AMOUNT_CHECK_SCALE, RoundingMode.DOWN).doubleValue() <= 0) {
             throw new InvalidInputException("Amount must be greater than 0");
         }
 
+        if (amount.scale() > MAX_AMOUNT_SCALE) {
+            throw new InvalidInputException(
+                    String.format("Amount can't have more than %d decimals", MAX_AMOUNT_SCALE));
+        }
+
+        if (!fitsInLong(amount)) {
+            throw new InvalidInputException("Amount has too many digits");
+        }
+
         return amount;
     }
+
+    /**
+     * Parses decimals like 12.345 straight from the input, returns null for
+     * anything else (signs, exponents, more than 18 digits), which is left
+     * to BigDecimal
+     */
+    private BigDecimal parsePlainDecimal(String input, int start, int end) {
+        long unscaledValue = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean hasPoint = false;
+
+        for (int i = start; i < end; i++) {
+            char current = input.charAt(i);
+
+            if (current == '.' && !hasPoint) {
+                hasPoint = true;
+            } else if (current >= '0' && current <= '9' && digits < MAX_FAST_DIGITS) {
+                unscaledValue = unscaledValue * 10 + (current - '0');
+                digits++;
+                if (hasPoint) scale++;
+            } else {
+                return null;
+            }
+        }
+
+        if (digits == 0) {
+            return null;
+        }
+
+        return BigDecimal.valueOf(unscaledValue, scale);
+    }
+
+    /**
+     * Returns whether the unscaled value of given amount fits in a long, so
+     * orders can keep the exact amount
+     */
+    private boolean fitsInLong(BigDecimal amount) {
+        if (amount.scale() < 0) {
+            return amount.precision() - amount.scale() <= MAX_FAST_DIGITS;
+        }
+
+        return amount.unscaledValue().bitLength() <= 63;
+    }
+
+    private int indexOfSpace(String input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == ' ') return i;
+        }
+
+        return -1;
+    }
+
+    private boolean isOnlySeparators(String input, int start) {
+        for (int i = start; i < input.length(); i++) {
+            if (input.charAt(i) != ';') return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as comparing input.toLowerCase() to given word, for words
+     * that only contain ASCII letters
+     */
+    private boolean equalsLowerCase(String input, int start, int end, String lowerCaseWord) {
+        if (end - start != lowerCaseWord.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < lowerCaseWord.length(); i++) {
+            if (Character.toLowerCase(input.charAt(start + i)) != lowerCaseWord.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int trimStart(String input, int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') start++;
+
+        return start;
+    }
+
+    private int trimEnd(String input, int start, int end) {
+        while (end > start && input.charAt(end - 1) <= ' ') end--;
+
+        return end;
+    }
 }
@@ -31,15 +31,36 @@ import java.math.BigDecimal;
 public class Order {
 
     private MoveType type;
+    private int pairId;
     private String pair;
     private BigDecimal rate;
     private BigDecimal amount;
+    private long unscaledAmount;
+    private int amountScale;
+    private long unscaledRate;
+    private int rateScale;
 
-    public Order(MoveType type, String pair, BigDecimal amount, BigDecimal rate) {
+    public Order(MoveType type, int pairId, String pair, BigDecimal amount, BigDecimal rate) {
         this.type = type;
+        this.pairId = pairId;
         this.pair = pair;
         this.amount = amount;
         this.rate = rate;
+
+        BigDecimal exactAmount = amount.scale() < 0 ? amount.setScale(0) : amount;
+        this.unscaledAmount = exactAmount.unscaledValue().longValueExact();
+        this.amountScale = exactAmount.scale();
+
+        BigDecimal exactRate = rate.scale() < 0 ? rate.setScale(0) : rate;
+        this.unscaledRate = exactRate.unscaledValue().longValueExact();
+        this.rateScale = exactRate.scale();
+    }
+
+    /**
+     * Returns the id of the pair in the symbol registry of the dataset
+     */
+    public int getPairId() {
+        return this.pairId;
     }
 
     public String getPair() {
@@ -54,6 +75,29 @@ public class Order {
         return this.rate;
     }
 
+    /**
+     * Returns the exact amount as an unscaled long, the deserializer only
+     * accepts amounts that fit
+     */
+    public long getUnscaledAmount() {
+        return this.unscaledAmount;
+    }
+
+    public int getAmountScale() {
+        return this.amountScale;
+    }
+
+    /**
+     * Returns the exact rate as an unscaled long, candle values always fit
+     */
+    public long getUnscaledRate() {
+        return this.unscaledRate;
+    }
+
+    public int getRateScale() {
+        return this.rateScale;
+    }
+
     public MoveType getType() {
         return this.type;
     }
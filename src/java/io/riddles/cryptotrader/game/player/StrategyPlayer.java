@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.player;
+
+/**
+ * io.riddles.cryptotrader.game.player.StrategyPlayer - Created on 18-10-26
+ *
+ * Player that hands all communication to a TradingStrategy
+ * instead of a bot process.
+ */
+public class StrategyPlayer extends CryptoTraderPlayer {
+
+    private TradingStrategy strategy;
+
+    public StrategyPlayer(int id, TradingStrategy strategy) {
+        super(id);
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void sendSetting(String type, String value) {
+        this.strategy.onSetting(type, value);
+    }
+
+    @Override
+    public void sendSetting(String type, int value) {
+        this.strategy.onSetting(type, String.valueOf(value));
+    }
+
+    @Override
+    public void sendUpdate(String type, String value) {
+        this.strategy.onUpdate(type, value);
+    }
+
+    @Override
+    public void sendWarning(String message) {
+        this.strategy.onWarning(message);
+    }
+
+    @Override
+    public String requestMove(Enum moveType) {
+        return this.strategy.onMoveRequest();
+    }
+
+    public TradingStrategy getStrategy() {
+        return this.strategy;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.player;
+
+/**
+ * io.riddles.cryptotrader.game.player.TradingStrategy - Created on 18-10-26
+ *
+ * In-process replacement for a bot. Receives the same settings and updates
+ * a bot would get and answers each move request with the same text a bot
+ * would send, e.g. "buy USDT_BTC 0.1;sell USDT_ETH 2" or "pass".
+ */
+public interface TradingStrategy {
+
+    default void onSetting(String type, String value) {}
+
+    default void onUpdate(String type, String value) {}
+
+    default void onWarning(String message) {}
+
+    String onMoveRequest();
+}
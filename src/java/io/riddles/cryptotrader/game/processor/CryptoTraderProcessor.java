@@ -22,16 +22,29 @@ package io.riddles.cryptotrader.game.processor;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import io.riddles.cryptotrader.data.Candle;
-import io.riddles.cryptotrader.data.Chart;
+import io.riddles.cryptotrader.data.CandleSubscription;
+import io.riddles.cryptotrader.data.CandleUpdate;
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.data.ChartWindow;
+import io.riddles.cryptotrader.data.IndicatorSet;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
+import io.riddles.cryptotrader.game.CheckpointWriter;
+import io.riddles.cryptotrader.game.PlayedGameWriter;
 import io.riddles.cryptotrader.game.move.ActionType;
 import io.riddles.cryptotrader.game.move.CryptoTraderMove;
 import io.riddles.cryptotrader.game.move.CryptoTraderMoveDeserializer;
 import io.riddles.cryptotrader.game.player.CryptoTraderPlayer;
+import io.riddles.cryptotrader.game.player.StrategyPlayer;
+import io.riddles.cryptotrader.game.state.Checkpoint;
 import io.riddles.cryptotrader.game.state.CryptoTraderPlayerState;
 import io.riddles.cryptotrader.game.state.CryptoTraderState;
+import io.riddles.cryptotrader.metrics.MatchMetrics;
 import io.riddles.javainterface.exception.InvalidMoveException;
 import io.riddles.javainterface.game.player.PlayerProvider;
 import io.riddles.javainterface.game.processor.SimpleProcessor;
@@ -45,16 +58,50 @@ import io.riddles.javainterface.game.processor.SimpleProcessor;
  */
 public class CryptoTraderProcessor extends SimpleProcessor<CryptoTraderState, CryptoTraderPlayer> {
 
+    // Bots mostly wait on I/O, so each concurrent move request gets its own thread
+    private static final ExecutorService MOVE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "move-collector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private CryptoTraderMoveDeserializer moveDeserializer;
-    private HashMap<String, Chart> charts;
+    private ChartSet charts;
+    private CryptoTraderSettings settings;
+    private ChartWindow window;
+    private CandleSubscription subscription;
+    private IndicatorSet indicators; // null if bots don't receive indicators
     private Date finalDate;
+    private PlayedGameWriter playedGameWriter;
+    private CheckpointWriter checkpointWriter; // null if checkpoints are off
+    private int initialRoundNumber; // Round of the checkpoint the match is resumed from
+    private MatchMetrics metrics; // null if metrics are off
+    private HashMap<Integer, CryptoTraderPlayerState> sentStacks; // Stacks last sent to each player in delta mode
+    private HashMap<Integer, Integer> passRounds; // Rounds each player still passes after a "pass n" move
+    private HashMap<Integer, ArrayList<CandleUpdate>> passedCandles; // Candles to send when these rounds are over
 
-    public CryptoTraderProcessor(PlayerProvider<CryptoTraderPlayer> playerProvider, HashMap<String, Chart> charts) {
+    public CryptoTraderProcessor(PlayerProvider<CryptoTraderPlayer> playerProvider, ChartSet charts,
+                                 CryptoTraderSettings settings) {
         super(playerProvider);
 
         this.charts = charts;
+        this.settings = settings;
+        this.metrics = settings.isMetricsEnabled() ? new MatchMetrics() : null;
         this.moveDeserializer = new CryptoTraderMoveDeserializer(charts);
-        this.finalDate = getFinalDate();
+        this.sentStacks = new HashMap<>();
+        this.passRounds = new HashMap<>();
+        this.passedCandles = new HashMap<>();
+        this.window = charts.getWindow(settings.getStartTimestamp(), settings.getEndTimestamp());
+        this.finalDate = this.window.getLastDate();
+        this.subscription = charts.getSubscription(settings.getSubscribedPairs(),
+                settings.getSubscribedKeys(), settings.getCandleAggregations());
+        this.indicators = settings.getIndicators().isEmpty()
+                ? null
+                : charts.getIndicators(settings.getSubscribedPairs(), settings.getIndicators());
+
+        if (this.window.size() <= settings.getGivenCandles()) {
+            throw new RuntimeException("Match window should have more candles than givenCandles");
+        }
     }
 
     @Override
@@ -78,65 +125,292 @@ public class CryptoTraderProcessor extends SimpleProcessor<CryptoTraderState, Cr
 
     @Override
     public CryptoTraderState createNextState(CryptoTraderState state, int roundNumber) {
-        CryptoTraderState nextState = state.createNextState(roundNumber);
+        long roundStart = startTimer();
+        CryptoTraderState nextState = this.playedGameWriter != null
+                ? state.createStreamedNextState(this.initialRoundNumber + roundNumber)
+                : state.createNextState(this.initialRoundNumber + roundNumber);
 
-        String nextCandleString = getCandleString(nextState);
+        List<CandleUpdate> candleUpdates = this.subscription.getCandleUpdates(nextState.getDate().getTime());
 
-        for (CryptoTraderPlayerState playerState : nextState.getPlayerStates()) {
-            sendUpdatesToPlayer(playerState, nextCandleString);
+        if (this.indicators != null) {
+            candleUpdates.add(new CandleUpdate(
+                    "indicators", this.indicators.getIndicatorMessage(nextState.getDate().getTime())));
+        }
+        ArrayList<CryptoTraderPlayerState> playerStates = nextState.getPlayerStates();
 
-            CryptoTraderPlayer player = getPlayer(playerState.getPlayerId());
-            CryptoTraderMove move = getPlayerMove(player, nextState);
-            playerState.setMove(move);
+        if (this.settings.isMoveCollectionConcurrent() && playerStates.size() > 1 && hasOnlyStrategyPlayers()) {
+            CryptoTraderMove[] moves = collectMoves(nextState, candleUpdates);
 
-            if (!move.isInvalid()) {
-                try {
-                    playerState.updateStack(move);
-                } catch (InvalidMoveException exception) {
-                    move.setException(exception);
-                }
+            for (int i = 0; i < moves.length; i++) {
+                settleMove(playerStates.get(i), moves[i], nextState);
             }
+        } else {
+            for (CryptoTraderPlayerState playerState : playerStates) {
+                CryptoTraderMove move = passRound(playerState, candleUpdates);
 
-            if (move.isInvalid()) {
-                nextState.setBotDisqualified();
-                player.sendWarning(move.getException().getMessage());
+                if (move == null) {
+                    sendUpdatesToPlayer(playerState, candleUpdates);
+                    move = getPlayerMove(getPlayer(playerState.getPlayerId()), nextState);
+                }
+
+                settleMove(playerState, move, nextState);
             }
+        }
 
-            playerState.updateStacksValue(nextState.getDate(), this.charts);
+        if (this.playedGameWriter != null) {
+            long start = startTimer();
+            this.playedGameWriter.addState(nextState);
+            recordTime(MatchMetrics.Phase.SERIALIZATION, start);
         }
 
+        if (this.checkpointWriter != null
+                && nextState.getRoundNumber() % this.settings.getCheckpointInterval() == 0) {
+            long start = startTimer();
+            this.checkpointWriter.write(new Checkpoint(nextState, this.playedGameWriter.flush()));
+            recordTime(MatchMetrics.Phase.CHECKPOINT, start);
+        }
+
+        recordTime(MatchMetrics.Phase.ROUND, roundStart);
+
         return nextState;
     }
 
-    public HashMap<String, Chart> getCharts() {
+    public ChartSet getCharts() {
         return this.charts;
     }
 
-    private Date getFinalDate() {
-        Chart chart = new ArrayList<>(this.charts.values()).get(0);
+    /**
+     * Returns the candles this match is played on
+     */
+    public ChartWindow getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Returns the pairs and candle format keys that are sent to the players
+     */
+    public CandleSubscription getSubscription() {
+        return this.subscription;
+    }
+
+    /**
+     * Returns the indicators that are sent to the players, null if
+     * they don't receive indicators
+     */
+    public IndicatorSet getIndicators() {
+        return this.indicators;
+    }
+
+    public CryptoTraderSettings getSettings() {
+        return this.settings;
+    }
+
+    /**
+     * Writes each state to given writer once it's processed. The states
+     * are then no longer linked to each other, only the initial state and
+     * the latest state are kept.
+     */
+    public void setPlayedGameWriter(PlayedGameWriter playedGameWriter) {
+        this.playedGameWriter = playedGameWriter;
+    }
+
+    public PlayedGameWriter getPlayedGameWriter() {
+        return this.playedGameWriter;
+    }
+
+    /**
+     * Writes a checkpoint every checkpointInterval rounds. Needs
+     * a played game writer, which the checkpoints point into, so
+     * that has to be set first.
+     */
+    public void setCheckpointWriter(CheckpointWriter checkpointWriter) {
+        if (checkpointWriter != null && this.playedGameWriter == null) {
+            throw new RuntimeException("Checkpoints need a played game writer");
+        }
+
+        this.checkpointWriter = checkpointWriter;
+    }
+
+    public CheckpointWriter getCheckpointWriter() {
+        return this.checkpointWriter;
+    }
+
+    /**
+     * Continues the round numbers from given checkpoint, whose state
+     * is used as initial state. The bots are restarted as well, so
+     * players that were passing rounds after "pass n" are asked for a
+     * move again in the first round, and with delta stacks updates the
+     * first stacks update contains all stacks again.
+     */
+    public void resumeFrom(Checkpoint checkpoint) {
+        this.initialRoundNumber = checkpoint.getRoundNumber();
+    }
+
+    /**
+     * Returns the phase latencies of this match, null if metrics are off
+     */
+    public MatchMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sends the updates to all players, then requests all moves at the same
+     * time, so the round takes as long as the slowest bot instead of all bots
+     * together. Moves are returned in the order of the player states, which is
+     * player id order, so they are settled the same way as when collected
+     * one after the other. Players that pass this round aren't asked.
+     *
+     * Only used when all players run in-process. The match wrapper answers
+     * move requests one at a time, so bots that run through it are always
+     * asked one after the other.
+     */
+    private CryptoTraderMove[] collectMoves(CryptoTraderState state, List<CandleUpdate> candleUpdates) {
+        ArrayList<CryptoTraderPlayerState> playerStates = state.getPlayerStates();
+        ArrayList<Future<CryptoTraderMove>> futures = new ArrayList<>(playerStates.size());
+        CryptoTraderMove[] moves = new CryptoTraderMove[playerStates.size()];
+
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = passRound(playerStates.get(i), candleUpdates);
+
+            if (moves[i] == null) {
+                sendUpdatesToPlayer(playerStates.get(i), candleUpdates);
+            }
+        }
+
+        for (int i = 0; i < moves.length; i++) {
+            CryptoTraderPlayer player = getPlayer(playerStates.get(i).getPlayerId());
+            futures.add(moves[i] == null ? MOVE_EXECUTOR.submit(() -> getPlayerMove(player, state)) : null);
+        }
+
+        for (int i = 0; i < moves.length; i++) {
+            if (futures.get(i) == null) continue;
+
+            try {
+                moves[i] = futures.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Returns a pass move if the player is still passing rounds after a "pass n"
+     * move, null if the player should be asked for a move. The candles of passed
+     * rounds are sent together once the player is asked again.
+     */
+    private CryptoTraderMove passRound(CryptoTraderPlayerState playerState, List<CandleUpdate> candleUpdates) {
+        int playerId = playerState.getPlayerId();
+        Integer rounds = this.passRounds.get(playerId);
+
+        if (rounds == null) {
+            return null;
+        }
+
+        if (rounds > 1) {
+            this.passRounds.put(playerId, rounds - 1);
+        } else {
+            this.passRounds.remove(playerId);
+        }
+
+        this.passedCandles.computeIfAbsent(playerId, id -> new ArrayList<>()).addAll(candleUpdates);
 
-        return chart.getCandles().values().stream()
-                .map(Candle::getDate)
-                .max(Date::compareTo)
-                .orElseThrow(() -> new RuntimeException("Can't find final candle date"));
+        return new CryptoTraderMove();
     }
 
-    private String getCandleString(CryptoTraderState state) {
-        return this.charts.values().stream()
-                .map(chart -> chart.getChandleAt(state.getDate()).toString())
-                .collect(Collectors.joining(";"));
+    private void settleMove(CryptoTraderPlayerState playerState, CryptoTraderMove move,
+                            CryptoTraderState state) {
+        playerState.setMove(move);
+
+        if (move.getPassRounds() > 1) {
+            this.passRounds.put(playerState.getPlayerId(), move.getPassRounds() - 1);
+        }
+
+        if (!move.isInvalid()) {
+            long start = startTimer();
+
+            try {
+                playerState.updateStack(move);
+            } catch (InvalidMoveException exception) {
+                move.setException(exception);
+            }
+
+            recordTime(MatchMetrics.Phase.UPDATE_STACK, start);
+        }
+
+        if (move.isInvalid()) {
+            state.setBotDisqualified();
+            getPlayer(playerState.getPlayerId()).sendWarning(move.getException().getMessage());
+        }
+
+        long start = startTimer();
+        playerState.updateStacksValue(state.getDate(), this.charts);
+        recordTime(MatchMetrics.Phase.VALUATION, start);
     }
 
-    private void sendUpdatesToPlayer(CryptoTraderPlayerState playerState, String candleString) {
+    private void sendUpdatesToPlayer(CryptoTraderPlayerState playerState, List<CandleUpdate> candleUpdates) {
         CryptoTraderPlayer player = getPlayer(playerState.getPlayerId());
+        ArrayList<CandleUpdate> passedCandles = this.passedCandles.remove(playerState.getPlayerId());
 
-        player.sendUpdate("next_candles", candleString);
-        player.sendUpdate("stacks", playerState.getStacksString());
+        if (passedCandles != null) {
+            for (CandleUpdate passedCandle : passedCandles) {
+                player.sendUpdate(passedCandle.getType(), passedCandle.getMessage());
+            }
+        }
+
+        for (CandleUpdate candleUpdate : candleUpdates) {
+            player.sendUpdate(candleUpdate.getType(), candleUpdate.getMessage());
+        }
+
+        if (!this.settings.isStacksDeltaEnabled()) {
+            player.sendUpdate("stacks", playerState.getStacksString());
+            return;
+        }
+
+        CryptoTraderPlayerState sentState = this.sentStacks.get(playerState.getPlayerId());
+        String stacks = sentState == null
+                ? playerState.getStacksString()
+                : playerState.getChangedStacksString(sentState);
+
+        if (!stacks.isEmpty()) {
+            player.sendUpdate("stacks", stacks);
+        }
+
+        this.sentStacks.put(playerState.getPlayerId(), new CryptoTraderPlayerState(playerState));
     }
 
     private CryptoTraderMove getPlayerMove(CryptoTraderPlayer player, CryptoTraderState state) {
+        long start = startTimer();
         String response = player.requestMove(ActionType.ORDER);
-        return this.moveDeserializer.traverse(response, state.getDate());
+        start = recordTime(MatchMetrics.Phase.REQUEST_MOVE, start);
+
+        CryptoTraderMove move = this.moveDeserializer.traverse(response, state.getDate());
+        recordTime(MatchMetrics.Phase.PARSE_MOVE, start);
+
+        return move;
+    }
+
+    private long startTimer() {
+        return this.metrics != null ? System.nanoTime() : 0;
+    }
+
+    private long recordTime(MatchMetrics.Phase phase, long start) {
+        return this.metrics != null ? this.metrics.record(phase, start) : 0;
+    }
+
+    private boolean hasOnlyStrategyPlayers() {
+        for (CryptoTraderPlayer player : this.playerProvider.getPlayers()) {
+            if (!(player instanceof StrategyPlayer)) return false;
+        }
+
+        return true;
     }
 
     private CryptoTraderPlayer getPlayer(int id) {
@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.state;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.data.SymbolRegistry;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
+
+/**
+ * io.riddles.cryptotrader.game.state.Checkpoint - Created on 18-10-26
+ *
+ * Snapshot of a match after a round: the date, round number, exact stacks
+ * of every player, whether the bot is disqualified and how much of the
+ * played game was written at that point. Stored in a small binary file,
+ * so a match can be resumed from it after a crash.
+ *
+ * The player states are copied when the snapshot is taken. Their stacks
+ * are immutable and shared, so taking a snapshot is cheap and it can be
+ * written on another thread while the match continues.
+ */
+public class Checkpoint {
+
+    static final int MAGIC = 0x43544350; // "CTCP"
+    static final int VERSION = 1;
+
+    private long timestamp;
+    private int roundNumber;
+    private boolean isBotDisqualified;
+    private long playedGamePosition;
+    private ArrayList<CryptoTraderPlayerState> playerStates;
+
+    public Checkpoint(CryptoTraderState state, long playedGamePosition) {
+        this.timestamp = state.getDate().getTime();
+        this.roundNumber = state.getRoundNumber();
+        this.isBotDisqualified = state.isBotDisqualified();
+        this.playedGamePosition = playedGamePosition;
+        this.playerStates = new ArrayList<>();
+
+        for (CryptoTraderPlayerState playerState : state.getPlayerStates()) {
+            this.playerStates.add(new CryptoTraderPlayerState(playerState));
+        }
+    }
+
+    private Checkpoint(long timestamp, int roundNumber, boolean isBotDisqualified, long playedGamePosition,
+                       ArrayList<CryptoTraderPlayerState> playerStates) {
+        this.timestamp = timestamp;
+        this.roundNumber = roundNumber;
+        this.isBotDisqualified = isBotDisqualified;
+        this.playedGamePosition = playedGamePosition;
+        this.playerStates = playerStates;
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file first and then moves it
+     * to given file, so a crash while writing leaves the previous checkpoint
+     */
+    public void write(File file) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        SymbolRegistry symbols = this.playerStates.isEmpty()
+                ? null
+                : this.playerStates.get(0).getSymbols();
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.timestamp);
+            out.writeInt(this.roundNumber);
+            out.writeBoolean(this.isBotDisqualified);
+            out.writeLong(this.playedGamePosition);
+
+            out.writeInt(symbols != null ? symbols.getSymbolCount() : 0);
+            for (int id = 0; symbols != null && id < symbols.getSymbolCount(); id++) {
+                out.writeUTF(symbols.getSymbol(id));
+            }
+
+            out.writeInt(this.playerStates.size());
+            for (CryptoTraderPlayerState playerState : this.playerStates) {
+                playerState.writeCheckpoint(out);
+            }
+        }
+
+        Files.move(temporaryFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Checkpoint read(File file, ChartSet charts, CryptoTraderSettings settings) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new RuntimeException("Not a checkpoint file");
+            }
+
+            if (in.readInt() != VERSION) {
+                throw new RuntimeException("Unsupported checkpoint file version");
+            }
+
+            long timestamp = in.readLong();
+            int roundNumber = in.readInt();
+            boolean isBotDisqualified = in.readBoolean();
+            long playedGamePosition = in.readLong();
+            SymbolRegistry symbols = charts.getRegistry();
+
+            int symbolCount = in.readInt();
+            boolean isSameSymbols = symbolCount == symbols.getSymbolCount();
+            for (int id = 0; id < symbolCount; id++) {
+                String symbol = in.readUTF();
+
+                if (isSameSymbols && !symbol.equals(symbols.getSymbol(id))) {
+                    isSameSymbols = false;
+                }
+            }
+
+            if (!isSameSymbols) {
+                throw new RuntimeException("Checkpoint symbols don't match the data file");
+            }
+
+            Date date = new Date(timestamp);
+            int playerCount = in.readInt();
+            ArrayList<CryptoTraderPlayerState> playerStates = new ArrayList<>(playerCount);
+
+            for (int i = 0; i < playerCount; i++) {
+                playerStates.add(new CryptoTraderPlayerState(in, date, charts, settings));
+            }
+
+            return new Checkpoint(timestamp, roundNumber, isBotDisqualified, playedGamePosition, playerStates);
+        }
+    }
+
+    /**
+     * Creates the state to resume the match from. It has no previous state,
+     * so it takes the place of the initial state.
+     */
+    public CryptoTraderState createState(CryptoTraderSettings settings) {
+        ArrayList<CryptoTraderPlayerState> playerStates = new ArrayList<>();
+
+        for (CryptoTraderPlayerState playerState : this.playerStates) {
+            playerStates.add(new CryptoTraderPlayerState(playerState));
+        }
+
+        return new CryptoTraderState(playerStates, new Date(this.timestamp), settings,
+                this.roundNumber, this.isBotDisqualified);
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public int getRoundNumber() {
+        return this.roundNumber;
+    }
+
+    /**
+     * Returns the length of the states written to the played game when
+     * this checkpoint was taken
+     */
+    public long getPlayedGamePosition() {
+        return this.playedGamePosition;
+    }
+
+    public ArrayList<CryptoTraderPlayerState> getPlayerStates() {
+        return this.playerStates;
+    }
+}
@@ -19,16 +19,25 @@
 
 package io.riddles.cryptotrader.game.state;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-import io.riddles.cryptotrader.data.Candle;
-import io.riddles.cryptotrader.data.Chart;
+import io.riddles.cryptotrader.data.ChartSet;
+import io.riddles.cryptotrader.data.FixedPoint;
+import io.riddles.cryptotrader.data.SymbolRegistry;
+import io.riddles.cryptotrader.data.ValuationTable;
 import io.riddles.cryptotrader.engine.CryptoTraderEngine;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
 import io.riddles.cryptotrader.game.move.CryptoTraderMove;
 import io.riddles.cryptotrader.game.move.MoveType;
 import io.riddles.cryptotrader.game.move.Order;
@@ -44,73 +53,249 @@ import io.riddles.javainterface.game.state.AbstractPlayerState;
  */
 public class CryptoTraderPlayerState extends AbstractPlayerState<CryptoTraderMove> {
 
-    private HashMap<String, BigDecimal> stacks;
+    private PersistentStacks stacks; // null if only the fixed-point ledger is used
+    private HashMap<String, BigDecimal> stacksMap; // Created from stacks on request
+    private FixedPointLedger ledger; // null if only the BigDecimal stacks are used
+    private boolean isLedgerChecked; // Cross checks stop after the first difference
     private double stackValue;
+    private CryptoTraderSettings settings;
 
-    public CryptoTraderPlayerState(int playerId, Date date, HashMap<String, Chart> charts) {
+    public CryptoTraderPlayerState(int playerId, Date date, ChartSet charts,
+                                   CryptoTraderSettings settings) {
         super(playerId);
+        this.settings = settings;
+        this.isLedgerChecked = true;
         initializeStacks(date, charts);
     }
 
+    /**
+     * Restores a player state that was written with writeCheckpoint
+     */
+    CryptoTraderPlayerState(DataInput input, Date date, ChartSet charts,
+                            CryptoTraderSettings settings) throws IOException {
+        super(input.readInt());
+        this.settings = settings;
+        this.isLedgerChecked = true;
+
+        CryptoTraderSettings.Ledger ledgerType = settings.getLedger();
+        SymbolRegistry symbols = charts.getRegistry();
+        boolean hasStacks = input.readBoolean();
+        boolean hasLedger = input.readBoolean();
+
+        if (hasStacks != (ledgerType != CryptoTraderSettings.Ledger.FIXED)
+                || hasLedger != (ledgerType != CryptoTraderSettings.Ledger.DECIMAL)) {
+            throw new RuntimeException("Checkpoint was written with another ledger setting");
+        }
+
+        if (hasStacks) {
+            BigDecimal[] stacks = new BigDecimal[symbols.getSymbolCount()];
+
+            for (int id = 0; id < stacks.length; id++) {
+                int scale = input.readInt();
+                byte[] unscaledValue = new byte[input.readInt()];
+                input.readFully(unscaledValue);
+                stacks[id] = new BigDecimal(new BigInteger(unscaledValue), scale);
+            }
+
+            this.stacks = new PersistentStacks(symbols, stacks);
+        }
+
+        if (hasLedger) {
+            long[] units = new long[symbols.getSymbolCount()];
+            long[] fractions = new long[symbols.getSymbolCount()];
+            int[] scales = new int[symbols.getSymbolCount()];
+
+            for (int id = 0; id < units.length; id++) {
+                units[id] = input.readLong();
+                fractions[id] = input.readLong();
+                scales[id] = input.readInt();
+            }
+
+            this.ledger = new FixedPointLedger(
+                    symbols, units, fractions, scales, settings.getTransactionFeePercent());
+        }
+
+        updateStacksValue(date, charts);
+    }
+
     public CryptoTraderPlayerState(CryptoTraderPlayerState playerState) {
         super(playerState.getPlayerId());
-        this.stacks = new HashMap<>();
-        this.stacks.putAll(playerState.stacks);
+        this.settings = playerState.settings;
+
+        this.stacks = playerState.stacks; // Immutable, so shared until the stacks change
+        this.stacksMap = playerState.stacksMap;
+
+        if (playerState.ledger != null) {
+            this.ledger = new FixedPointLedger(playerState.ledger);
+        }
+        this.isLedgerChecked = playerState.isLedgerChecked;
+
         this.stackValue = playerState.stackValue;
     }
 
-    // For now we are assuming each symbol has a USDT trading pair
-    public void updateStacksValue(Date date, HashMap<String, Chart> charts) {
-        BigDecimal value = BigDecimal.ZERO;
+    public void updateStacksValue(Date date, ChartSet charts) {
+        ValuationTable valuation = charts.getValuation();
+        int index = valuation.getIndex(date.getTime());
 
-        for (Map.Entry<String, BigDecimal> entry : this.stacks.entrySet()) {
-            String symbol = entry.getKey();
-            BigDecimal amount = entry.getValue();
+        if (this.ledger != null) {
+            this.stackValue = getLedgerValue(valuation, index);
+        }
 
-            if (symbol.equals("USDT")) {
-                value = value.add(amount);
-            } else {
-                Chart chart = charts.get("USDT_" + symbol);
-                Candle candle = chart.getChandleAt(date);
+        if (this.stacks != null) {
+            double ledgerValue = this.stackValue;
+            this.stackValue = getDecimalStacksValue(valuation, index);
 
-                value = value.add(amount.multiply(candle.getRate()));
+            if (this.ledger != null && this.isLedgerChecked && ledgerValue != this.stackValue) {
+                reportLedgerDifference(String.format(
+                        "Ledger value %s differs from stacks value %s", ledgerValue, this.stackValue));
             }
         }
-
-        this.stackValue = value.setScale(2, RoundingMode.HALF_UP).doubleValue();
     }
 
     public String getStacksString() {
-        return this.stacks.entrySet().stream()
-                .map(entry -> {
-                    BigDecimal amount = entry.getValue();
-                    int scale = entry.getKey().equals("USDT") ? 2 : 8;
+        return getStacks().entrySet().stream()
+                .map(entry -> formatStack(entry.getKey(), entry.getValue()))
+                .collect(Collectors.joining(","));
+    }
 
-                    String value = amount.setScale(scale, RoundingMode.DOWN).toPlainString();
+    /**
+     * Returns the stacks that changed since given earlier copy of this
+     * player state, in the same format as getStacksString. Returns an
+     * empty string if nothing changed.
+     */
+    public String getChangedStacksString(CryptoTraderPlayerState previousState) {
+        StringBuilder builder = new StringBuilder();
+        SymbolRegistry symbols = getSymbols();
 
-                    return String.format("%s:%s", entry.getKey(), value);
-                })
-                .collect(Collectors.joining(","));
+        IntConsumer appendStack = id -> {
+            BigDecimal amount = this.stacks != null
+                    ? this.stacks.get(id)
+                    : this.ledger.getBalance(id);
+
+            if (builder.length() > 0) builder.append(',');
+            builder.append(formatStack(symbols.getSymbol(id), amount));
+        };
+
+        if (this.stacks != null) {
+            this.stacks.forEachChanged(previousState.stacks, appendStack);
+        } else {
+            this.ledger.forEachChanged(previousState.ledger, appendStack);
+        }
+
+        return builder.toString();
     }
 
     public void updateStack(CryptoTraderMove move) throws InvalidMoveException {
-        double feePercent = CryptoTraderEngine.configuration.getDouble("transactionFeePercent");
+        if (this.stacks == null) {
+            this.ledger.settle(move);
+            return;
+        }
 
-        for (Order order : move.getOrders()) {
-            String[] symbols = order.getPair().split("_");
+        InvalidMoveException exception = null;
+        try {
+            updateDecimalStacks(move);
+        } catch (InvalidMoveException ex) {
+            exception = ex;
+        }
+
+        if (this.ledger != null && this.isLedgerChecked) {
+            crossCheckLedger(move, exception != null);
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    public HashMap<String, BigDecimal> getStacks() {
+        if (this.stacks == null) {
+            return this.ledger.getStacks();
+        }
+
+        if (this.stacksMap == null) {
+            this.stacksMap = this.stacks.toMap();
+        }
+
+        return this.stacksMap;
+    }
 
-            String minusSymbol;
-            String plusSymbol;
+    public double getStackValue() {
+        return this.stackValue;
+    }
+
+    SymbolRegistry getSymbols() {
+        return this.stacks != null ? this.stacks.getSymbols() : this.ledger.getSymbols();
+    }
+
+    /**
+     * Writes the stacks and ledger balances exactly, so the player state
+     * can be restored from a checkpoint
+     */
+    void writeCheckpoint(DataOutput output) throws IOException {
+        output.writeInt(getPlayerId());
+        output.writeBoolean(this.stacks != null);
+        output.writeBoolean(this.ledger != null);
+
+        if (this.stacks != null) {
+            for (int id = 0; id < this.stacks.size(); id++) {
+                BigDecimal stack = this.stacks.get(id);
+                byte[] unscaledValue = stack.unscaledValue().toByteArray();
+
+                output.writeInt(stack.scale());
+                output.writeInt(unscaledValue.length);
+                output.write(unscaledValue);
+            }
+        }
+
+        if (this.ledger != null) {
+            for (int id = 0; id < getSymbols().getSymbolCount(); id++) {
+                output.writeLong(this.ledger.getUnits(id));
+                output.writeLong(this.ledger.getFraction(id));
+                output.writeInt(this.ledger.getScale(id));
+            }
+        }
+    }
+
+    private double getDecimalStacksValue(ValuationTable valuation, int index) {
+        BigDecimal value = BigDecimal.ZERO;
+
+        for (int id = 0; id < this.stacks.size(); id++) {
+            BigDecimal amount = this.stacks.get(id);
+
+            if (amount.signum() != 0) {
+                value = value.add(amount.multiply(valuation.getPrice(index, id)));
+            }
+        }
+
+        return value.setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private String formatStack(String symbol, BigDecimal amount) {
+        int scale = symbol.equals(SymbolRegistry.USDT) ? 2 : 8;
+
+        return symbol + ":" + amount.setScale(scale, RoundingMode.DOWN).toPlainString();
+    }
+
+    private double getLedgerValue(ValuationTable valuation, int index) {
+        return this.ledger.getValueCents(valuation, index) / 100.0;
+    }
+
+    private void updateDecimalStacks(CryptoTraderMove move) throws InvalidMoveException {
+        SymbolRegistry symbols = this.stacks.getSymbols();
+
+        for (Order order : move.getOrders()) {
+            int minusSymbol;
+            int plusSymbol;
             BigDecimal minusAmount;
             BigDecimal plusAmount;
             if (order.getType() == MoveType.BUY) {
-                minusSymbol = symbols[0];
-                plusSymbol = symbols[1];
+                minusSymbol = symbols.getBaseId(order.getPairId());
+                plusSymbol = symbols.getQuoteId(order.getPairId());
                 minusAmount = order.getAmount().multiply(order.getRate());
                 plusAmount = order.getAmount();
             } else {
-                minusSymbol = symbols[1];
-                plusSymbol = symbols[0];
+                minusSymbol = symbols.getQuoteId(order.getPairId());
+                plusSymbol = symbols.getBaseId(order.getPairId());
                 minusAmount = order.getAmount();
                 plusAmount = order.getAmount().multiply(order.getRate());
             }
@@ -121,7 +306,7 @@ public class CryptoTraderPlayerState extends AbstractPlayerState<CryptoTraderMov
                 throw new InvalidMoveException(
                         String.format(
                                 "%s stack (%s, %s) is too small for this order (%s, %s)",
-                                minusSymbol,
+                                symbols.getSymbol(minusSymbol),
                                 this.stacks.get(minusSymbol),
                                 stack,
                                 minusAmount,
@@ -130,46 +315,77 @@ public class CryptoTraderPlayerState extends AbstractPlayerState<CryptoTraderMov
                 );
             }
 
-            BigDecimal fee = plusAmount.multiply(BigDecimal.valueOf(feePercent / 100));
+            BigDecimal fee = plusAmount.multiply(this.settings.getTransactionFee());
 
             updateStack(minusSymbol, minusAmount.negate());
             updateStack(plusSymbol, plusAmount.subtract(fee));
         }
     }
 
-    public HashMap<String, BigDecimal> getStacks() {
-        return this.stacks;
-    }
+    /**
+     * Settles the move on the fixed-point ledger as well and logs a warning
+     * if the ledger doesn't reject the same moves or doesn't end up with
+     * exactly the same stacks. The BigDecimal stacks decide the match.
+     */
+    private void crossCheckLedger(CryptoTraderMove move, boolean isRejected) {
+        boolean isLedgerRejected = false;
+        try {
+            this.ledger.settle(move);
+        } catch (InvalidMoveException ex) {
+            isLedgerRejected = true;
+        }
 
-    public double getStackValue() {
-        return this.stackValue;
-    }
+        if (isLedgerRejected != isRejected) {
+            reportLedgerDifference(String.format(
+                    "Ledger %s move that the stacks %s", isLedgerRejected ? "rejected" : "accepted",
+                    isRejected ? "rejected" : "accepted"));
+            return;
+        }
 
-    private void updateStack(String symbol, BigDecimal delta) {
-        this.stacks.put(symbol, this.stacks.get(symbol).add(delta));
-    }
+        SymbolRegistry symbols = this.stacks.getSymbols();
 
-    private void initializeStacks(Date date, HashMap<String, Chart> charts) {
-        this.stacks = new HashMap<>();
+        for (int id = 0; id < symbols.getSymbolCount(); id++) {
+            BigDecimal amount = this.stacks.get(id);
 
-        BigDecimal initialStack = new BigDecimal(CryptoTraderEngine.configuration.getInt("initialStack"));
+            if (this.ledger.getBalance(id).compareTo(amount) != 0) {
+                reportLedgerDifference(String.format(
+                        "Ledger %s stack %s differs from stacks value %s", symbols.getSymbol(id),
+                        this.ledger.getBalance(id), amount));
+                return;
+            }
+        }
+    }
 
-        for (String pair : charts.keySet()) {
-            String[] split = pair.split("_");
+    /**
+     * Logs the first difference between the ledger and the stacks, after
+     * which the ledger of this player isn't checked anymore
+     */
+    private void reportLedgerDifference(String message) {
+        CryptoTraderEngine.LOGGER.log(Level.WARNING, String.format("Player %d: %s", getPlayerId(), message));
+        this.isLedgerChecked = false;
+    }
 
-            for (String symbol : split) {
-                if (this.stacks.containsKey(symbol)) continue;
+    private void updateStack(int id, BigDecimal delta) {
+        this.stacks = this.stacks.set(id, this.stacks.get(id).add(delta));
+        this.stacksMap = null;
+    }
 
-                if (symbol.equals("USDT")) {
-                    this.stacks.put(symbol, initialStack);
-                } else {
-                    this.stacks.put(symbol, BigDecimal.ZERO);
-                }
-            }
+    private void initializeStacks(Date date, ChartSet charts) {
+        CryptoTraderSettings.Ledger ledgerType = this.settings.getLedger();
+        BigDecimal initialStack = new BigDecimal(this.settings.getInitialStack());
+        SymbolRegistry symbols = charts.getRegistry();
+
+        if (ledgerType != CryptoTraderSettings.Ledger.DECIMAL) {
+            this.ledger = new FixedPointLedger(
+                    symbols, FixedPoint.toUnits(initialStack), this.settings.getTransactionFeePercent());
         }
 
-        if (!this.stacks.containsKey("USDT")) {
-            throw new RuntimeException("USDT should be in at least one trading pair");
+        if (ledgerType != CryptoTraderSettings.Ledger.FIXED) {
+            BigDecimal[] stacks = new BigDecimal[symbols.getSymbolCount()];
+            Arrays.fill(stacks, BigDecimal.ZERO);
+            stacks[symbols.getUsdtId()] = initialStack;
+
+            this.stacks = new PersistentStacks(symbols, stacks);
         }
 
         updateStacksValue(date, charts);
@@ -22,7 +22,7 @@ package io.riddles.cryptotrader.game.state;
 import java.util.ArrayList;
 import java.util.Date;
 
-import io.riddles.cryptotrader.engine.CryptoTraderEngine;
+import io.riddles.cryptotrader.engine.CryptoTraderSettings;
 import io.riddles.javainterface.game.state.AbstractState;
 
 /**
@@ -36,12 +36,27 @@ public class CryptoTraderState extends AbstractState<CryptoTraderPlayerState> {
 
     private boolean isBotDisqualified;
     private Date date;
+    private CryptoTraderSettings settings;
+    private CryptoTraderState firstState;
 
     // For initial state only
-    public CryptoTraderState(ArrayList<CryptoTraderPlayerState> playerStates, Date date) {
+    public CryptoTraderState(ArrayList<CryptoTraderPlayerState> playerStates, Date date,
+                             CryptoTraderSettings settings) {
         super(null, playerStates, 0);
         this.isBotDisqualified = false;
         this.date = date;
+        this.settings = settings;
+        this.firstState = this;
+    }
+
+    // For a state restored from a checkpoint, which acts as initial state
+    public CryptoTraderState(ArrayList<CryptoTraderPlayerState> playerStates, Date date,
+                             CryptoTraderSettings settings, int roundNumber, boolean isBotDisqualified) {
+        super(null, playerStates, roundNumber);
+        this.isBotDisqualified = isBotDisqualified;
+        this.date = date;
+        this.settings = settings;
+        this.firstState = this;
     }
 
     public CryptoTraderState(
@@ -49,14 +64,38 @@ public class CryptoTraderState extends AbstractState<CryptoTraderPlayerState> {
             ArrayList<CryptoTraderPlayerState> playerStates,
             int roundNumber
     ) {
-        super(previousState, playerStates, roundNumber);
-        this.isBotDisqualified = previousState.isBotDisqualified;
+        this(previousState, previousState, playerStates, roundNumber);
+    }
 
-        long candleInterval = CryptoTraderEngine.configuration.getInt("candleInterval");
-        this.date = new Date(previousState.date.getTime() + candleInterval);
+    // For a state that is linked after another state than the previous one
+    private CryptoTraderState(
+            CryptoTraderState previousState,
+            CryptoTraderState linkedState,
+            ArrayList<CryptoTraderPlayerState> playerStates,
+            int roundNumber
+    ) {
+        super(linkedState, playerStates, roundNumber);
+        this.isBotDisqualified = previousState.isBotDisqualified;
+        this.settings = previousState.settings;
+        this.date = new Date(previousState.date.getTime() + this.settings.getCandleInterval());
+        this.firstState = previousState.firstState;
     }
 
     public CryptoTraderState createNextState(int roundNumber) {
+        return createNextState(roundNumber, this);
+    }
+
+    /**
+     * Creates the next state, but links it directly after the first state
+     * instead of after this state. The first state then only refers to the
+     * latest state, so all states in between can be collected while the
+     * played game is streamed.
+     */
+    public CryptoTraderState createStreamedNextState(int roundNumber) {
+        return createNextState(roundNumber, this.firstState);
+    }
+
+    private CryptoTraderState createNextState(int roundNumber, CryptoTraderState linkedState) {
         // Create new player states from current player states
         ArrayList<CryptoTraderPlayerState> playerStates = new ArrayList<>();
         for (CryptoTraderPlayerState playerState : getPlayerStates()) {
@@ -64,7 +103,7 @@ public class CryptoTraderState extends AbstractState<CryptoTraderPlayerState> {
         }
 
         // Create new state from current state
-        return new CryptoTraderState(this, playerStates, roundNumber);
+        return new CryptoTraderState(this, linkedState, playerStates, roundNumber);
     }
 
     public void setBotDisqualified() {
@@ -78,4 +117,8 @@ public class CryptoTraderState extends AbstractState<CryptoTraderPlayerState> {
     public Date getDate() {
         return this.date;
     }
+
+    public CryptoTraderSettings getSettings() {
+        return this.settings;
+    }
 }
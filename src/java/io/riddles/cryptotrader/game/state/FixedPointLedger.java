@@ -0,0 +1,328 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.state;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+import io.riddles.cryptotrader.data.FixedPoint;
+import io.riddles.cryptotrader.data.SymbolRegistry;
+import io.riddles.cryptotrader.data.ValuationTable;
+import io.riddles.cryptotrader.game.move.CryptoTraderMove;
+import io.riddles.cryptotrader.game.move.MoveType;
+import io.riddles.cryptotrader.game.move.Order;
+import io.riddles.javainterface.exception.InvalidMoveException;
+
+/**
+ * io.riddles.cryptotrader.game.state.FixedPointLedger - Created on 18-10-26
+ *
+ * Alternative to the BigDecimal stacks in CryptoTraderPlayerState. Stores
+ * each balance as a long in units of 1e-8 plus the fraction of a unit in
+ * units of 1e-26, indexed by symbol, so settling orders and valuing the
+ * stacks doesn't need any BigDecimals.
+ *
+ * Copies share their balances until one of them settles an order.
+ *
+ * Order amounts have at most 18 decimals and are exact as unscaled longs,
+ * see CryptoTraderMoveDeserializer. Amount times rate times fee has at most 26 decimals
+ * for amounts with up to 15 decimals, so every posting is exact and the
+ * ledger gives the same stacks, stack checks and values as the BigDecimal
+ * path. For amounts with 16 to 18 decimals, only the digits of a posting
+ * beyond 1e-26 are dropped. The scale the BigDecimal stack would have is
+ * kept as well, so balances print the same.
+ */
+public class FixedPointLedger {
+
+    private static final long HALF_UNIT = FixedPoint.FRACTION_ONE / 2;
+
+    private SymbolRegistry symbols;
+    private long unscaledFee;
+    private int feeScale;
+    private long[] units;
+    private long[] fractions; // Always in [0, FRACTION_ONE), also for negative balances
+    private int[] scales;
+    private boolean isShared; // balances are shared with a copy and can't be written
+    private long[] product = new long[2]; // Units and fraction of the last posting
+
+    public FixedPointLedger(SymbolRegistry symbols, long initialStack, double feePercent) {
+        this(symbols, new long[symbols.getSymbolCount()], new long[symbols.getSymbolCount()],
+                new int[symbols.getSymbolCount()], feePercent);
+        this.units[symbols.getUsdtId()] = initialStack;
+    }
+
+    /**
+     * Creates a ledger with given balances, e.g. restored from a checkpoint
+     */
+    public FixedPointLedger(SymbolRegistry symbols, long[] units, long[] fractions, int[] scales,
+                            double feePercent) {
+        BigDecimal fee = BigDecimal.valueOf(feePercent / 100);
+        if (fee.scale() < 0) {
+            fee = fee.setScale(0);
+        }
+
+        this.symbols = symbols;
+        this.unscaledFee = fee.unscaledValue().longValueExact();
+        this.feeScale = fee.scale();
+        this.units = units;
+        this.fractions = fractions;
+        this.scales = scales;
+    }
+
+    public FixedPointLedger(FixedPointLedger ledger) {
+        this.symbols = ledger.symbols;
+        this.unscaledFee = ledger.unscaledFee;
+        this.feeScale = ledger.feeScale;
+        this.units = ledger.units;
+        this.fractions = ledger.fractions;
+        this.scales = ledger.scales;
+        this.isShared = true;
+        ledger.isShared = true;
+    }
+
+    public void settle(CryptoTraderMove move) throws InvalidMoveException {
+        ArrayList<Order> orders = move.getOrders();
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            int pairId = order.getPairId();
+            boolean isBuy = order.getType() == MoveType.BUY;
+            int minusSymbol = isBuy ? this.symbols.getBaseId(pairId) : this.symbols.getQuoteId(pairId);
+            int plusSymbol = isBuy ? this.symbols.getQuoteId(pairId) : this.symbols.getBaseId(pairId);
+
+            long amount = order.getUnscaledAmount();
+            int amountScale = order.getAmountScale();
+            int valueScale = amountScale + order.getRateScale();
+            int decimalAmountScale = order.getAmount().scale();
+            int decimalValueScale = decimalAmountScale + order.getRate().scale();
+
+            // Debit amount * rate for a buy and amount for a sell, a debit that
+            // doesn't fit in a long is more than any stack
+            long minusUnits;
+            long minusFraction;
+            try {
+                if (isBuy) {
+                    FixedPoint.multiplySplit(amount, order.getUnscaledRate(), valueScale, this.product);
+                } else {
+                    FixedPoint.multiplySplit(amount, 1, amountScale, this.product);
+                }
+                minusUnits = this.product[0];
+                minusFraction = this.product[1];
+            } catch (ArithmeticException ex) {
+                minusUnits = Long.MAX_VALUE;
+                minusFraction = 0;
+            }
+
+            if (getRoundedBalance(minusSymbol) < minusUnits) {
+                BigDecimal exactAmount = isBuy
+                        ? order.getAmount().multiply(order.getRate())
+                        : order.getAmount();
+
+                throw new InvalidMoveException(
+                        String.format(
+                                "%s stack (%s, %s) is too small for this order (%s, %s)",
+                                this.symbols.getSymbol(minusSymbol),
+                                getBalance(minusSymbol),
+                                FixedPoint.toDecimal(getRoundedBalance(minusSymbol)),
+                                exactAmount,
+                                exactAmount.setScale(FixedPoint.SCALE, RoundingMode.DOWN)
+                        )
+                );
+            }
+
+            // Credit amount for a buy and amount * rate for a sell, minus the fee
+            if (isBuy) {
+                FixedPoint.multiplySplit(amount, 1, amountScale, this.product);
+            } else {
+                FixedPoint.multiplySplit(amount, order.getUnscaledRate(), valueScale, this.product);
+            }
+            long plusUnits = this.product[0];
+            long plusFraction = this.product[1];
+
+            FixedPoint.multiplySplit(plusUnits, plusFraction, this.unscaledFee, this.feeScale, this.product);
+            plusUnits = Math.subtractExact(plusUnits, this.product[0]);
+            plusFraction -= this.product[1];
+            if (plusFraction < 0) {
+                plusFraction += FixedPoint.FRACTION_ONE;
+                plusUnits--;
+            }
+
+            if (this.isShared) {
+                this.units = this.units.clone();
+                this.fractions = this.fractions.clone();
+                this.scales = this.scales.clone();
+                this.isShared = false;
+            }
+
+            post(minusSymbol, -minusUnits, -minusFraction, isBuy ? decimalValueScale : decimalAmountScale);
+            post(plusSymbol, plusUnits, plusFraction,
+                    (isBuy ? decimalAmountScale : decimalValueScale) + this.feeScale);
+        }
+    }
+
+    /**
+     * Returns the total value of the stacks in USDT cents at the prices of
+     * given index in the valuation table, rounded half up once like the
+     * BigDecimal stacks
+     */
+    public long getValueCents(ValuationTable valuation, int index) {
+        long valueUnits = 0;
+        long valueFraction = 0;
+        int inexactProducts = 0;
+
+        for (int id = 0; id < this.units.length; id++) {
+            long balanceUnits = this.units[id];
+            long balanceFraction = this.fractions[id];
+            if (balanceUnits == 0 && balanceFraction == 0) continue;
+
+            // Value the magnitude of negative balances and subtract it
+            boolean isNegative = balanceUnits < 0;
+            if (isNegative && balanceFraction != 0) {
+                balanceUnits = -balanceUnits - 1;
+                balanceFraction = FixedPoint.FRACTION_ONE - balanceFraction;
+            } else if (isNegative) {
+                balanceUnits = -balanceUnits;
+            }
+
+            if (!FixedPoint.multiplySplit(balanceUnits, balanceFraction,
+                    valuation.getUnscaledPrice(index, id), valuation.getPriceScale(index, id), this.product)) {
+                inexactProducts++;
+            }
+
+            if (isNegative) {
+                valueUnits = Math.subtractExact(valueUnits, this.product[0]);
+                valueFraction -= this.product[1];
+                if (valueFraction < 0) {
+                    valueFraction += FixedPoint.FRACTION_ONE;
+                    valueUnits--;
+                }
+            } else {
+                valueUnits = Math.addExact(valueUnits, this.product[0]);
+                valueFraction += this.product[1];
+                if (valueFraction >= FixedPoint.FRACTION_ONE) {
+                    valueFraction -= FixedPoint.FRACTION_ONE;
+                    valueUnits++;
+                }
+            }
+        }
+
+        // Half a cent is a whole number of units, so only the units decide the
+        // rounding, unless dropped digits could have carried into them
+        boolean isAmbiguous = inexactProducts > 0 && (valueFraction < inexactProducts
+                || valueFraction >= FixedPoint.FRACTION_ONE - inexactProducts);
+
+        if (valueUnits < 0 || isAmbiguous) {
+            BigDecimal value = BigDecimal.ZERO;
+
+            for (int id = 0; id < this.units.length; id++) {
+                value = value.add(getBalance(id).multiply(valuation.getPrice(index, id)));
+            }
+
+            return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+
+        return (valueUnits + FixedPoint.ONE / 200) / (FixedPoint.ONE / 100);
+    }
+
+    public SymbolRegistry getSymbols() {
+        return this.symbols;
+    }
+
+    /**
+     * Returns the exact balance of given symbol, with the scale of the
+     * BigDecimal stack
+     */
+    public BigDecimal getBalance(int symbolId) {
+        return FixedPoint.toDecimal(this.units[symbolId])
+                .add(BigDecimal.valueOf(this.fractions[symbolId], FixedPoint.FRACTION_SCALE))
+                .setScale(this.scales[symbolId], RoundingMode.DOWN);
+    }
+
+    public long getUnits(int symbolId) {
+        return this.units[symbolId];
+    }
+
+    public long getFraction(int symbolId) {
+        return this.fractions[symbolId];
+    }
+
+    public int getScale(int symbolId) {
+        return this.scales[symbolId];
+    }
+
+    /**
+     * Calls given consumer with the id of every balance that differs
+     * from given previous version of this ledger
+     */
+    public void forEachChanged(FixedPointLedger previous, IntConsumer consumer) {
+        if (this.units == previous.units) return;
+
+        for (int i = 0; i < this.units.length; i++) {
+            if (this.units[i] != previous.units[i] || this.fractions[i] != previous.fractions[i]) {
+                consumer.accept(i);
+            }
+        }
+    }
+
+    public HashMap<String, BigDecimal> getStacks() {
+        HashMap<String, BigDecimal> stacks = new HashMap<>();
+
+        for (int i = 0; i < this.units.length; i++) {
+            stacks.put(this.symbols.getSymbol(i), getBalance(i));
+        }
+
+        return stacks;
+    }
+
+    /**
+     * Returns the balance rounded half up to units, like the stack checks
+     * of the BigDecimal path
+     */
+    private long getRoundedBalance(int symbolId) {
+        long fraction = this.fractions[symbolId];
+        boolean isRoundedUp = fraction > HALF_UNIT || (fraction == HALF_UNIT && this.units[symbolId] >= 0);
+
+        return isRoundedUp ? this.units[symbolId] + 1 : this.units[symbolId];
+    }
+
+    /**
+     * Adds units + fraction / 1e18 to the balance of given symbol, both
+     * parts have the sign of the posting. Scale is the scale the posting
+     * has as a BigDecimal
+     */
+    private void post(int symbolId, long units, long fraction, int scale) {
+        long newFraction = this.fractions[symbolId] + fraction;
+        long newUnits = Math.addExact(this.units[symbolId], units);
+
+        if (newFraction < 0) {
+            newFraction += FixedPoint.FRACTION_ONE;
+            newUnits = Math.subtractExact(newUnits, 1);
+        } else if (newFraction >= FixedPoint.FRACTION_ONE) {
+            newFraction -= FixedPoint.FRACTION_ONE;
+            newUnits = Math.addExact(newUnits, 1);
+        }
+
+        this.units[symbolId] = newUnits;
+        this.fractions[symbolId] = newFraction;
+        this.scales[symbolId] = Math.max(this.scales[symbolId], scale);
+    }
+}
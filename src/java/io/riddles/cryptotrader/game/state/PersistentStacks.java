@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.state;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+import io.riddles.cryptotrader.data.SymbolRegistry;
+
+/**
+ * io.riddles.cryptotrader.game.state.PersistentStacks - Created on 18-10-26
+ *
+ * Immutable stacks by symbol id, stored in a trie of 32-wide nodes.
+ * Setting a stack returns new stacks that copy only the nodes on the path
+ * to that symbol and share everything else, so player states of rounds
+ * where nothing changed share all their storage with the previous round.
+ */
+public final class PersistentStacks {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final SymbolRegistry symbols;
+    private final Object[] root;
+    private final int shift;
+
+    public PersistentStacks(SymbolRegistry symbols, BigDecimal[] stacks) {
+        if (stacks.length != symbols.getSymbolCount()) {
+            throw new RuntimeException("Stacks should have a value for every symbol");
+        }
+
+        int shift = 0;
+        while ((long) WIDTH << shift < stacks.length) {
+            shift += BITS;
+        }
+
+        this.symbols = symbols;
+        this.shift = shift;
+        this.root = build(stacks, shift, 0);
+    }
+
+    private PersistentStacks(SymbolRegistry symbols, Object[] root, int shift) {
+        this.symbols = symbols;
+        this.root = root;
+        this.shift = shift;
+    }
+
+    public BigDecimal get(int id) {
+        Object[] node = this.root;
+
+        for (int level = this.shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(id >>> level) & MASK];
+        }
+
+        return (BigDecimal) node[id & MASK];
+    }
+
+    public PersistentStacks set(int id, BigDecimal stack) {
+        return new PersistentStacks(this.symbols, set(this.root, this.shift, id, stack), this.shift);
+    }
+
+    public int size() {
+        return this.symbols.getSymbolCount();
+    }
+
+    public SymbolRegistry getSymbols() {
+        return this.symbols;
+    }
+
+    /**
+     * Calls given consumer with the id of every stack that was set since
+     * given previous version of these stacks. Shared nodes are skipped
+     * as a whole, so this takes time proportional to the changed stacks.
+     */
+    public void forEachChanged(PersistentStacks previous, IntConsumer consumer) {
+        forEachChanged(this.root, previous.root, this.shift, 0, consumer);
+    }
+
+    /**
+     * Returns the stacks by symbol name, added in symbol id order
+     */
+    public HashMap<String, BigDecimal> toMap() {
+        HashMap<String, BigDecimal> stacks = new HashMap<>();
+
+        for (int id = 0; id < size(); id++) {
+            stacks.put(this.symbols.getSymbol(id), get(id));
+        }
+
+        return stacks;
+    }
+
+    private static void forEachChanged(Object[] node, Object[] previous, int level, int offset,
+                                       IntConsumer consumer) {
+        if (node == previous) return;
+
+        for (int i = 0; i < node.length; i++) {
+            if (node[i] == previous[i]) continue;
+
+            if (level == 0) {
+                consumer.accept(offset + i);
+            } else {
+                forEachChanged((Object[]) node[i], (Object[]) previous[i], level - BITS,
+                        offset + (i << level), consumer);
+            }
+        }
+    }
+
+    private static Object[] build(BigDecimal[] stacks, int level, int offset) {
+        int childSpan = 1 << level;
+        int count = Math.min(WIDTH, (stacks.length - offset + childSpan - 1) / childSpan);
+        Object[] node = new Object[count];
+
+        for (int i = 0; i < count; i++) {
+            node[i] = level == 0
+                    ? stacks[offset + i]
+                    : build(stacks, level - BITS, offset + (i << level));
+        }
+
+        return node;
+    }
+
+    private static Object[] set(Object[] node, int level, int id, BigDecimal stack) {
+        Object[] copy = node.clone();
+
+        if (level == 0) {
+            copy[id & MASK] = stack;
+        } else {
+            int index = (id >>> level) & MASK;
+            copy[index] = set((Object[]) node[index], level - BITS, id, stack);
+        }
+
+        return copy;
+    }
+}
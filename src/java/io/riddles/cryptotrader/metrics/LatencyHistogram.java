@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.metrics;
+
+import org.json.JSONObject;
+
+/**
+ * io.riddles.cryptotrader.metrics.LatencyHistogram - Created on 18-10-26
+ *
+ * Histogram of durations in nanoseconds with fixed log-linear buckets:
+ * every power of two is split into 16 buckets, so recording is a few
+ * shifts and an array increment, and percentiles are accurate to
+ * about 3%. Synchronized, as moves can be timed on several threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private long[] counts;
+    private long count;
+    private long total;
+    private long min;
+    private long max;
+
+    public LatencyHistogram() {
+        this.counts = new long[BUCKET_COUNT];
+        this.min = Long.MAX_VALUE;
+    }
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+
+        this.counts[getBucket(nanos)]++;
+        this.count++;
+        this.total += nanos;
+        this.min = Math.min(this.min, nanos);
+        this.max = Math.max(this.max, nanos);
+    }
+
+    public synchronized void add(LatencyHistogram histogram) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts[i] += histogram.counts[i];
+        }
+
+        this.count += histogram.count;
+        this.total += histogram.total;
+        this.min = Math.min(this.min, histogram.min);
+        this.max = Math.max(this.max, histogram.max);
+    }
+
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    public synchronized long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns the duration in nanoseconds below which given
+     * fraction of the recorded durations falls
+     */
+    public synchronized long getPercentile(double fraction) {
+        if (this.count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * this.count));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += this.counts[i];
+
+            if (seen >= rank) {
+                return Math.max(this.min, Math.min(this.max, getBucketMiddle(i)));
+            }
+        }
+
+        return this.max;
+    }
+
+    /**
+     * Returns count and total, plus mean, percentiles and extremes in microseconds
+     */
+    public synchronized JSONObject toJson() {
+        JSONObject histogram = new JSONObject();
+
+        histogram.put("count", this.count);
+        histogram.put("totalMs", this.total / 1e6);
+
+        if (this.count > 0) {
+            histogram.put("meanUs", this.total / 1e3 / this.count);
+            histogram.put("minUs", this.min / 1e3);
+            histogram.put("p50Us", getPercentile(0.5) / 1e3);
+            histogram.put("p90Us", getPercentile(0.9) / 1e3);
+            histogram.put("p99Us", getPercentile(0.99) / 1e3);
+            histogram.put("p999Us", getPercentile(0.999) / 1e3);
+            histogram.put("maxUs", this.max / 1e3);
+        }
+
+        return histogram;
+    }
+
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS * 2) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long getBucketMiddle(int bucket) {
+        if (bucket < SUB_BUCKETS * 2) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+        return lowest + ((1L << shift) >> 1);
+    }
+}
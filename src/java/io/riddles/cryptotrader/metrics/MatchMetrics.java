@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.metrics;
+
+import org.json.JSONObject;
+
+/**
+ * io.riddles.cryptotrader.metrics.MatchMetrics - Created on 18-10-26
+ *
+ * Latency histograms for each phase of a match. Only created when the
+ * metrics setting is on, callers skip timing entirely when it's null.
+ */
+public class MatchMetrics {
+
+    public enum Phase {
+        ROUND("round"),
+        REQUEST_MOVE("requestMove"),
+        PARSE_MOVE("parseMove"),
+        UPDATE_STACK("updateStack"),
+        VALUATION("valuation"),
+        SERIALIZATION("serialization"),
+        CHECKPOINT("checkpoint");
+
+        private String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+    }
+
+    private LatencyHistogram[] histograms;
+
+    public MatchMetrics() {
+        this.histograms = new LatencyHistogram[Phase.values().length];
+
+        for (int i = 0; i < this.histograms.length; i++) {
+            this.histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the time since start for given phase and returns the current time,
+     * so consecutive phases can be timed with a single call each
+     */
+    public long record(Phase phase, long start) {
+        long now = System.nanoTime();
+        this.histograms[phase.ordinal()].record(now - start);
+
+        return now;
+    }
+
+    public LatencyHistogram getHistogram(Phase phase) {
+        return this.histograms[phase.ordinal()];
+    }
+
+    /**
+     * Returns a histogram per phase plus the round throughput
+     */
+    public JSONObject toJson() {
+        JSONObject metrics = new JSONObject();
+
+        for (Phase phase : Phase.values()) {
+            metrics.put(phase.getKey(), getHistogram(phase).toJson());
+        }
+
+        LatencyHistogram rounds = getHistogram(Phase.ROUND);
+        if (rounds.getTotal() > 0) {
+            metrics.put("roundsPerSecond", rounds.getCount() * 1e9 / rounds.getTotal());
+        }
+
+        return metrics;
+    }
+}
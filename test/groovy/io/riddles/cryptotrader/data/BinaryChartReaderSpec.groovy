@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.BinaryChartReaderSpec - Created on 18-10-26
+ *
+ * A data file converted to the binary format must read back as the same
+ * charts as the CSV file it was written from.
+ */
+class BinaryChartReaderSpec extends Specification {
+
+    def "test csv to binary round trip"() {
+
+        setup:
+        ChartSet csvCharts = new CsvChartReader(1800).read(getClass().getResourceAsStream("/data.csv"))
+        File file = File.createTempFile("charts", ".bin")
+        file.deleteOnExit()
+
+        when:
+        new BinaryChartWriter().write(csvCharts, file)
+        ChartSet binaryCharts = new BinaryChartReader(1800).read(file)
+
+        then:
+        BinaryChartReader.isBinaryFile(file)
+        binaryCharts.keySet() == csvCharts.keySet()
+        binaryCharts.getCandleFormat() == csvCharts.getCandleFormat()
+        csvCharts.every { pair, csvChart ->
+            Chart binaryChart = binaryCharts.get(pair)
+
+            binaryChart.size() == csvChart.size() &&
+                    binaryChart.getTimestamp(0) == csvChart.getTimestamp(0) &&
+                    (0..<csvChart.size()).every { binaryChart.getCandleString(it) == csvChart.getCandleString(it) }
+        }
+    }
+
+    def "test binary file with another interval"() {
+
+        setup:
+        String csv = "pair,date,high,low,open,close,volume\n" +
+                "USDT_BTC,1516147200,11000,10000,10000,10500.5,1\n" +
+                "USDT_BTC,1516149000,12000,11000,11000,12000,2\n"
+        ChartSet charts = new CsvChartReader(1800).read(new ByteArrayInputStream(csv.getBytes("UTF-8")))
+        File file = File.createTempFile("charts", ".bin")
+        file.deleteOnExit()
+        new BinaryChartWriter().write(charts, file)
+
+        when:
+        new BinaryChartReader(300).read(file)
+
+        then:
+        RuntimeException ex = thrown()
+        ex.getMessage() == "Candle timestamps are not according to settings"
+    }
+}
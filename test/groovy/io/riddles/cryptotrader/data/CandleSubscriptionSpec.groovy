@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.CandleSubscriptionSpec - Created on 18-10-26
+ *
+ * A subscription only renders the subscribed pairs and keys, in chart and
+ * candle format order, and is shared by everyone with the same selection.
+ */
+class CandleSubscriptionSpec extends Specification {
+
+    @Shared
+    ChartSet charts = createCharts()
+
+    def "test subscribed candles"() {
+
+        setup:
+        CandleSubscription all = this.charts.getSubscription([], [])
+        CandleSubscription subscription = this.charts.getSubscription(pairs, keys)
+        List<String> format = all.getCandleFormat().split(",") as List
+        long timestamp = 1516149000
+
+        expect:
+        subscription.getCandleFormat() == candleFormat
+        subscription.getCandleMessage(timestamp) == filter(all.getCandleMessage(timestamp), format, candleFormat, pairs)
+        subscription.getCandleMessage(timestamp - 1) == null
+
+        where:
+        pairs                    | keys                 | candleFormat
+        []                       | []                   | "pair,date,high,low,open,close,volume"
+        ["USDT_ETH", "BTC_ETH"]  | []                   | "pair,date,high,low,open,close,volume"
+        []                       | ["volume", "close"]  | "pair,date,close,volume"
+        ["USDT_BTC"]             | ["close"]            | "pair,date,close"
+        ["USDT_BTC"]             | ["date"]             | "pair,date"
+    }
+
+    def "test shared subscriptions"() {
+
+        expect:
+        this.charts.getSubscription([], []).is(this.charts.getSubscription([], []))
+        this.charts.getSubscription(["USDT_ETH", "USDT_BTC"], ["close", "volume"])
+                .is(this.charts.getSubscription(["USDT_BTC", "USDT_ETH"], ["volume", "close"]))
+        !this.charts.getSubscription(["USDT_BTC"], []).is(this.charts.getSubscription(["USDT_ETH"], []))
+    }
+
+    def "test unknown subscriptions"() {
+
+        when:
+        this.charts.getSubscription(pairs, keys)
+
+        then:
+        RuntimeException exception = thrown()
+        exception.message == message
+
+        where:
+        pairs        | keys       | message
+        ["USDT_XRP"] | []         | "Can't subscribe to unknown pair 'USDT_XRP'"
+        []           | ["spread"] | "Can't subscribe to unknown key 'spread'"
+    }
+
+    private static ChartSet createCharts() {
+        ChartSet charts = new CsvChartReader(1800).read(CandleSubscriptionSpec.getResourceAsStream("/data.csv"))
+        charts.cacheCandleMessages()
+        return charts
+    }
+
+    /**
+     * Keeps the candles of given pairs, all if empty, and the columns of given format
+     */
+    private static String filter(String message, List<String> format, String candleFormat, List<String> pairs) {
+        List<Integer> columns = candleFormat.split(",").collect { format.indexOf(it) }
+
+        return message.split(";")
+                .findAll { candle -> pairs.isEmpty() || pairs.contains(candle.split(",")[0]) }
+                .collect { candle -> columns.collect { candle.split(",")[it] }.join(",") }
+                .join(";")
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import io.riddles.cryptotrader.engine.CryptoTraderEngine
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.ChartAggregationSpec - Created on 18-10-26
+ *
+ * Candles of multiples of the interval are built from the shorter ones
+ * and match aggregating the original candles directly. They are sent
+ * together with the last candle they contain.
+ */
+class ChartAggregationSpec extends Specification {
+
+    def "test candle aggregations"() {
+
+        setup:
+        ChartSet charts = CryptoTraderEngine.readDataFile("/data.csv", 1800)
+        Chart chart = charts.get("USDT_BTC")
+
+        when:
+        ChartSet fourHours = charts.getAggregation(8)
+        ChartSet days = charts.getAggregation(48)
+        Chart day = days.get("USDT_BTC")
+        long first = day.getTimestamp(1)
+        long last = first + 86400 - 1800
+        RangeIndex rangeIndex = chart.getRangeIndex()
+
+        then:
+        fourHours.getInterval() == 14400
+        days.getInterval() == 86400
+        days.getCandleFormat() == "pair,date,high,low,open,close,volume"
+        day.size() == 15
+        (0..<day.size()).every { day.getCandleString(it) == chart.aggregate(48).getCandleString(it) }
+        day.getData(1).get("open") == chart.getData(chart.getIndex(first)).get("open")
+        day.getData(1).get("close") == chart.getData(chart.getIndex(last)).get("close")
+        day.getData(1).get("high") == rangeIndex.getHigh(first, last)
+        day.getData(1).get("low") == rangeIndex.getLow(first, last)
+        day.getData(1).get("volume") == rangeIndex.getVolume(first, last)
+    }
+
+    def "test aggregated candle updates"() {
+
+        setup:
+        ChartSet charts = CryptoTraderEngine.readDataFile("/data.csv", 1800)
+        CandleSubscription subscription = charts.getSubscription(["USDT_BTC"], ["close"], [8])
+        long timestamp = charts.get("USDT_BTC").getTimestamp(0)
+
+        expect:
+        subscription.getAggregationIntervals() == [14400] as long[]
+        subscription.getCandleUpdates(timestamp).size() == 1
+        subscription.getCandleUpdates(timestamp + 7 * 1800)*.getType() == ["next_candles", "next_candles_14400"]
+        subscription.getCandleUpdates(timestamp + 7 * 1800)[1].getMessage() == "USDT_BTC,$timestamp," +
+                charts.get("USDT_BTC").getData(7).get("close").toPlainString()
+    }
+}
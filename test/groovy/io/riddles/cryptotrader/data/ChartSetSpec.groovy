@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.ChartSetSpec - Created on 18-10-26
+ *
+ * The cached next_candles messages must be the candles of all charts
+ * joined in map order, rendered once per timestamp on first use.
+ */
+class ChartSetSpec extends Specification {
+
+    def "test cached candle messages"() {
+
+        setup:
+        ChartSet charts = new CsvChartReader(1800).read(getClass().getResourceAsStream("/data.csv"))
+        Chart firstChart = charts.values().iterator().next()
+
+        expect:
+        (0..<firstChart.size()).every { index ->
+            long timestamp = firstChart.getTimestamp(index)
+            String message = charts.values()
+                    .collect { it.getChandleAt(new Date(timestamp)).toString() }
+                    .join(";")
+
+            charts.getCandleMessage(timestamp) == message &&
+                    charts.getCandleMessage(timestamp).is(charts.getCandleMessage(timestamp))
+        }
+        charts.getCandleMessage(firstChart.getTimestamp(0) - 1800) == null
+    }
+
+    def "test candle messages are rendered on first use"() {
+
+        setup:
+        ChartSet charts = new CsvChartReader(1800).read(getClass().getResourceAsStream("/data.csv"))
+        Chart firstChart = charts.values().iterator().next()
+        String[] candleMessages = charts.getSubscription([], []).@candleMessages
+
+        expect:
+        candleMessages.every { it == null }
+
+        when:
+        charts.getCandleMessage(firstChart.getTimestamp(5))
+
+        then:
+        candleMessages.findIndexValues { it != null } == [5]
+    }
+
+    def "test candle messages before caching"() {
+
+        setup:
+        ChartSet charts = new ChartSet("pair,date,close", 1800)
+
+        when:
+        charts.getCandleMessage(0)
+
+        then:
+        RuntimeException ex = thrown()
+        ex.getMessage() == "Candle messages are not cached yet"
+    }
+}
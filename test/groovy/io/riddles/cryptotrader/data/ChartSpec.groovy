@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.ChartSpec - Created on 18-10-26
+ *
+ * Candles added in any order are indexed by (timestamp - first) / interval
+ * and read back from the columns with their exact decimals.
+ */
+class ChartSpec extends Specification {
+
+    String[] format = ["pair", "date", "high", "low", "open", "close", "volume", "note"]
+
+    def "test column indexing"() {
+
+        setup:
+        Chart chart = new Chart("USDT_BTC", format, 1800)
+        chart.addCandle(["USDT_BTC", "3600", "12", "10", "11", "11.5", "3.25000000", "c"] as String[])
+        chart.addCandle(["USDT_BTC", "0", "10", "9", "9.5", "0.00012300", "1", "a"] as String[])
+        chart.addCandle(["USDT_BTC", "1800", "11", "9.75", "10", "10.5", "2", "b"] as String[])
+
+        when:
+        chart.sortCandles()
+
+        then:
+        chart.size() == 3
+        chart.getIndex(0) == 0
+        chart.getIndex(3600) == 2
+        chart.getIndex(900) == -1
+        chart.getIndex(5400) == -1
+        chart.getIndex(-1800) == -1
+        chart.getTimestamp(1) == 1800
+        chart.getRate(0) == new BigDecimal("0.00012300")
+        chart.getRateUnits(2) == 1150000000L
+        chart.getColumn("low").get(1) == 9.75
+        chart.getColumn("note") == null
+        chart.getCandleString(0) == "USDT_BTC,0,10,9,9.5,0.00012300,1,a"
+        chart.getCandleString(2) == "USDT_BTC,3600,12,10,11,11.5,3.25000000,c"
+        chart.getData(1) == ["high": 11, "low": 9.75, "open": 10, "close": 10.5, "volume": 2]
+        chart.getChandleAt(new Date(1800)).getRate() == 10.5
+        chart.getChandleAt(new Date(7200)) == null
+    }
+
+    def "test candles that aren't one interval apart"() {
+
+        setup:
+        Chart chart = new Chart("USDT_BTC", format, 1800)
+        timestamps.each {
+            chart.addCandle(["USDT_BTC", it, "1", "1", "1", "1", "1", "x"] as String[])
+        }
+
+        when:
+        chart.sortCandles()
+
+        then:
+        RuntimeException ex = thrown()
+        ex.getMessage() == message
+
+        where:
+        timestamps            | message
+        ["0", "1800", "1800"] | "Can't have two candles with the same timestamp"
+        ["0", "3600"]         | "Candle timestamps are not according to settings"
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.ChartWindowSpec - Created on 18-10-26
+ *
+ * A window starts at the first candle at or after the start timestamp and
+ * ends at the last candle at or before the end timestamp, without copying
+ * any candles.
+ */
+class ChartWindowSpec extends Specification {
+
+    def "test chart window"() {
+
+        setup:
+        ChartSet charts = new CsvChartReader(1800).read(getClass().getResourceAsStream("/data.csv"))
+        charts.cacheCandleMessages()
+
+        when:
+        ChartWindow window = charts.getWindow(start, end)
+
+        then:
+        window.getFirstTimestamp() == first
+        window.getLastTimestamp() == last
+        window.size() == size
+        window.getLastDate().getTime() == last
+
+        where:
+        start      | end        | first      | last       | size
+        -1         | -1         | 1516147200 | 1517441400 | 720
+        1516147201 | -1         | 1516149000 | 1517441400 | 719
+        -1         | 1517441399 | 1516147200 | 1517439600 | 719
+        1516327200 | 1517225405 | 1516327200 | 1517225400 | 500
+        1400000000 | 1600000000 | 1516147200 | 1517441400 | 720
+        1516150000 | 1516150800 | 1516150800 | 1516150800 | 1
+    }
+
+    def "test empty chart window"() {
+
+        setup:
+        ChartSet charts = new CsvChartReader(1800).read(getClass().getResourceAsStream("/data.csv"))
+        charts.cacheCandleMessages()
+
+        when:
+        charts.getWindow(1516149001, 1516150799)
+
+        then:
+        RuntimeException exception = thrown()
+        exception.message == "There are no candles between 1516149001 and 1516150799"
+    }
+}
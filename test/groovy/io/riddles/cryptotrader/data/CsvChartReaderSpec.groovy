@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import java.util.concurrent.ForkJoinPool
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.CsvChartReaderSpec - Created on 18-10-26
+ *
+ * A data file that is split into several chunks, with the candles of each
+ * pair spread over all of them, must be read into the same charts as the
+ * lines in the file.
+ */
+class CsvChartReaderSpec extends Specification {
+
+    def "test reading a data file in chunks"() {
+
+        setup:
+        int candleCount = 20000
+        List<String> pairs = ["USDT_BTC", "BTC_ETH", "USDT_ETH"]
+        Map<String, List<String>> lines = pairs.collectEntries { [(it): []] }
+        StringBuilder csv = new StringBuilder("pair,date,high,low,open,close,volume\n")
+
+        for (int i = 0; i < candleCount; i++) {
+            // The candles of USDT_ETH are in reverse order
+            pairs.each { pair ->
+                int index = pair == "USDT_ETH" ? candleCount - 1 - i : i
+                String line = String.format("%s,%d,%d.%02d,%d,%d.5,%d.%08d,%d.1",
+                        pair, 1516147200 + index * 1800, index + 2, index % 100, index,
+                        index + 1, index + 1, index, index % 7)
+                lines[pair].add(line)
+                csv.append(line).append("\n")
+            }
+        }
+        lines["USDT_ETH"] = lines["USDT_ETH"].reverse()
+
+        File file = File.createTempFile("data", ".csv")
+        file.deleteOnExit()
+        file.setText(csv.toString(), "UTF-8")
+        ForkJoinPool pool = new ForkJoinPool(4)
+
+        when:
+        ChartSet fileCharts = new CsvChartReader(1800, pool).read(file)
+        ChartSet streamCharts = new CsvChartReader(1800, pool).read(new ByteArrayInputStream(file.bytes))
+
+        then:
+        file.length() > 3 << 20
+        [fileCharts, streamCharts].every { charts ->
+            charts.keySet() == pairs.toSet() && pairs.every { pair ->
+                Chart chart = charts.get(pair)
+                chart.size() == candleCount &&
+                        (0..<candleCount).every { chart.getCandleString(it) == lines[pair][it] }
+            }
+        }
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def "test chunks with a gap in the candles"() {
+
+        setup:
+        String csv = "pair,date,high,low,open,close,volume\n" +
+                "USDT_BTC,1516147200,1,1,1,1,1\n" +
+                "USDT_BTC,1516150800,1,1,1,1,1\n"
+
+        when:
+        new CsvChartReader(1800).read(new ByteArrayInputStream(csv.getBytes("UTF-8")))
+
+        then:
+        RuntimeException ex = thrown()
+        ex.getMessage() == "Candle timestamps are not according to settings"
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import io.riddles.cryptotrader.engine.CryptoTraderEngine
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.IndicatorSetSpec - Created on 18-10-26
+ *
+ * Indicators are computed once per candle and shared by everyone asking
+ * for the same pairs and names. Values stay empty until there are enough
+ * candles.
+ */
+class IndicatorSetSpec extends Specification {
+
+    def "test indicators"() {
+
+        setup:
+        ChartSet charts = CryptoTraderEngine.readDataFile("/data.csv", 1800)
+        Chart chart = charts.get("USDT_BTC")
+        IndicatorSet indicators = charts.getIndicators(["USDT_BTC"], ["sma_3", "rsi_2"])
+        List<BigDecimal> closes = (0..<5).collect { chart.getData(it).get("close") }
+
+        when:
+        List<String[]> values = (0..<5).collect {
+            indicators.getIndicatorMessage(chart.getTimestamp(it)).split(",", -1)
+        }
+
+        then:
+        indicators.getIndicatorFormat() == "pair,date,sma_3,rsi_2"
+        charts.getIndicators(["USDT_BTC"], ["SMA_3", "rsi_2"]).is(indicators)
+        values[0] == ["USDT_BTC", chart.getTimestamp(0).toString(), "", ""] as String[]
+        values[1][2] == ""
+        new BigDecimal(values[2][2]) == ((closes[0] + closes[1] + closes[2]) / 3).setScale(8, BigDecimal.ROUND_HALF_UP)
+        new BigDecimal(values[4][2]) == ((closes[2] + closes[3] + closes[4]) / 3).setScale(8, BigDecimal.ROUND_HALF_UP)
+        values[1][3] == ""
+        (2..<5).every { new BigDecimal(values[it][3]) >= 0 && new BigDecimal(values[it][3]) <= 100 }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.SymbolRegistrySpec - Created on 18-10-26
+ *
+ * Pairs and symbols get dense ids in chart order, and every symbol is
+ * valued in USDT through its shortest route of pairs.
+ */
+class SymbolRegistrySpec extends Specification {
+
+    def "test pair and symbol ids"() {
+
+        setup:
+        SymbolRegistry registry = createRegistry("USDT_BTC", "BTC_ETH", "USDT_ETH")
+        String input = "buy BTC_ETH 1"
+
+        expect:
+        registry.getPairCount() == 3
+        registry.getPairId("BTC_ETH") == 1
+        registry.getPairId(input, 4, 11) == 1
+        registry.getPairId("ETH_BTC") == -1
+        registry.getPairId(input, 0, 3) == -1
+        registry.getSymbolCount() == 3
+        (0..<3).collect { registry.getSymbol(it) } == ["USDT", "BTC", "ETH"]
+        registry.getUsdtId() == registry.getSymbolId("USDT")
+        registry.getBaseId(1) == registry.getSymbolId("BTC")
+        registry.getQuoteId(1) == registry.getSymbolId("ETH")
+        registry.getChart(2).getPair() == "USDT_ETH"
+    }
+
+    def "test valuation routes"() {
+
+        setup:
+        SymbolRegistry registry = createRegistry(pairs as String[])
+        int symbolId = registry.getSymbolId(symbol)
+
+        expect:
+        registry.getPair(registry.getValuationPairId(symbolId)) == pair
+        registry.getSymbol(registry.getValuationSourceId(symbolId)) == source
+        registry.isValuationInverted(symbolId) == isInverted
+        registry.getValuationChart(symbolId).getPair() == pair
+
+        where:
+        pairs                                    | symbol | pair       | source | isInverted
+        ["BTC_ETH", "USDT_BTC"]                  | "ETH"  | "BTC_ETH"  | "BTC"  | false
+        ["BTC_ETH", "USDT_BTC", "USDT_ETH"]      | "ETH"  | "USDT_ETH" | "USDT" | false
+        ["BTC_USDT", "USDT_ETH"]                 | "BTC"  | "BTC_USDT" | "USDT" | true
+        ["BTC_USDT", "USDT_BTC"]                 | "BTC"  | "USDT_BTC" | "USDT" | false
+        ["XRP_ETH", "USDT_BTC", "BTC_ETH"]       | "XRP"  | "XRP_ETH"  | "ETH"  | true
+    }
+
+    def "test valuation order"() {
+
+        setup:
+        SymbolRegistry registry = createRegistry("XRP_ETH", "BTC_ETH", "USDT_BTC")
+        int[] order = registry.getValuationOrder()
+
+        expect:
+        order.collect { registry.getSymbol(it) } == ["USDT", "BTC", "ETH", "XRP"]
+        registry.getValuationPairId(registry.getUsdtId()) == -1
+        registry.getValuationChart(registry.getUsdtId()) == null
+    }
+
+    def "test invalid pairs"() {
+
+        when:
+        createRegistry(pairs as String[])
+
+        then:
+        RuntimeException exception = thrown()
+        exception.message == message
+
+        where:
+        pairs                     | message
+        ["USDT_BTC", "BTCETH"]    | "Pair 'BTCETH' should consist of two symbols"
+        ["BTC_ETH"]               | "USDT should be in at least one trading pair"
+        ["USDT_BTC", "XRP_ETH"]   | "XRP can't be valued in USDT through any trading pair"
+    }
+
+    private static SymbolRegistry createRegistry(String... pairs) {
+        LinkedHashMap<String, Chart> charts = new LinkedHashMap<>()
+
+        pairs.each { pair -> charts.put(pair, new Chart(pair, ["date", "close"] as String[], 1800)) }
+
+        return new SymbolRegistry(charts)
+    }
+}
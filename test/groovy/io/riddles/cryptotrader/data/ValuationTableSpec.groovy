@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.data
+
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.data.ValuationTableSpec - Created on 18-10-26
+ *
+ * Tests the USDT prices of the valuation table, for symbols with a USDT
+ * pair, inverted pairs and symbols valued through another symbol.
+ */
+class ValuationTableSpec extends Specification {
+
+    def "test valuation routes"() {
+
+        setup:
+        String csv = "pair,date,high,low,open,close,volume\n" +
+                "USDT_BTC,1516147200,11000,10000,10000,10000,1\n" +
+                "BTC_ETH,1516147200,0.1,0.1,0.1,0.1,1\n" +
+                "XRP_USDT,1516147200,2,2,2,2,1\n" +
+                "USDT_BTC,1516149000,12000,11000,11000,12000,1\n" +
+                "BTC_ETH,1516149000,0.1,0.1,0.1,0.05,1\n" +
+                "XRP_USDT,1516149000,4,4,4,4,1\n"
+        ChartSet charts = new CsvChartReader(1800).read(new ByteArrayInputStream(csv.getBytes("UTF-8")))
+        SymbolRegistry symbols = charts.getRegistry()
+        int eth = symbols.getSymbolId("ETH")
+        int xrp = symbols.getSymbolId("XRP")
+
+        when:
+        ValuationTable valuation = charts.getValuation()
+
+        then:
+        symbols.getPair(symbols.getValuationPairId(eth)) == "BTC_ETH"
+        symbols.getValuationSourceId(eth) == symbols.getSymbolId("BTC")
+        symbols.isValuationInverted(xrp)
+        valuation.getPrice(0, eth) == 1000
+        valuation.getPrice(1, eth) == 600
+        valuation.getPrice(0, xrp) == 0.5
+        valuation.getPrice(1, xrp) == 0.25
+        valuation.getPrice(0, symbols.getUsdtId()) == 1
+        valuation.getUnscaledPrice(1, eth) == 600 * FixedPoint.ONE
+        valuation.getPriceScale(1, eth) == FixedPoint.SCALE
+        charts.getValuation().is(valuation)
+    }
+
+    def "test direct prices are read from the chart"() {
+
+        setup:
+        String csv = "pair,date,high,low,open,close,volume\n" +
+                "USDT_BTC,1516147200,11000,10000,10000,10000.12345,1\n" +
+                "BTC_ETH,1516147200,0.1,0.1,0.1,0.1,1\n" +
+                "USDT_BTC,1516149000,12000,11000,11000,12000,1\n" +
+                "BTC_ETH,1516149000,0.1,0.1,0.1,0.05,1\n"
+        ChartSet charts = new CsvChartReader(1800).read(new ByteArrayInputStream(csv.getBytes("UTF-8")))
+        SymbolRegistry symbols = charts.getRegistry()
+        int btc = symbols.getSymbolId("BTC")
+        int eth = symbols.getSymbolId("ETH")
+        int usdt = symbols.getUsdtId()
+        DecimalColumn rates = charts.get("USDT_BTC").getColumn(Chart.CLOSE)
+
+        when:
+        ValuationTable valuation = charts.getValuation()
+
+        then:
+        valuation.getPrice(0, btc) == rates.get(0)
+        valuation.getUnscaledPrice(0, btc) == rates.getUnscaledValue(0)
+        valuation.getPriceScale(0, btc) == rates.getScale(0)
+        valuation.getPriceUnits(0, btc) == rates.getUnits(0)
+        valuation.getPrice(0, eth) == 1000.012345
+        valuation.getPriceUnits(0, eth) == 100001234500
+        valuation.getPriceScale(0, eth) == FixedPoint.SCALE
+        valuation.getPriceUnits(1, eth) == 600 * FixedPoint.ONE
+        valuation.getPrice(1, usdt) == 1
+        valuation.getUnscaledPrice(1, usdt) == 1
+        valuation.getPriceScale(1, usdt) == 0
+        valuation.getPriceUnits(1, usdt) == FixedPoint.ONE
+    }
+}
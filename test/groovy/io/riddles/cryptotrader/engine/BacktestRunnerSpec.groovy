@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine
+
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.engine.BacktestRunnerSpec - Created on 18-10-26
+ *
+ * A backtest runs a whole match in-process against a strategy, and
+ * gives the same score and played game as the engine would.
+ */
+class BacktestRunnerSpec extends Specification {
+
+    def "test backtest runner"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        List<String> warnings = []
+        List<String> candles = []
+
+        TradingStrategy passStrategy = { "pass" } as TradingStrategy
+        TradingStrategy invalidStrategy = new TradingStrategy() {
+            void onUpdate(String type, String value) { if (type == "next_candles") candles.add(value) }
+            void onWarning(String message) { warnings.add(message) }
+            String onMoveRequest() { "buy USDT_BTC 1000" }
+        }
+
+        when:
+        BacktestResult result1 = runner.run(passStrategy)
+        BacktestResult result2 = runner.run(invalidStrategy)
+
+        then:
+        result1.getRoundCount() == 383
+        result1.getStates().size() == 384
+        result1.getScore() == 1000.0
+        !result1.isBotDisqualified()
+        result2.isBotDisqualified()
+        result2.getRoundCount() == 1
+        result2.getScore() == 0.0
+        warnings.size() == 1
+        warnings[0].startsWith("USDT stack")
+        candles.size() == 338
+    }
+
+    def "test backtest played game"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        TradingStrategy passStrategy = { "pass" } as TradingStrategy
+
+        when:
+        String memoryGame = runner.run(passStrategy, [playedGame: "memory"]).getPlayedGame()
+        String streamedGame = runner.run(passStrategy, [playedGame: "stream"]).getPlayedGame()
+
+        then:
+        memoryGame.startsWith("{\"charts\":")
+        streamedGame == memoryGame
+    }
+
+    def "test backtest time window"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        List<String> candles = []
+        TradingStrategy strategy = new TradingStrategy() {
+            void onUpdate(String type, String value) { if (type == "next_candles") candles.add(value) }
+            String onMoveRequest() { "pass" }
+        }
+
+        when:
+        BacktestResult result = runner.run(strategy, [startTimestamp: 1516327200L, endTimestamp: 1517225405L])
+
+        then:
+        result.getRoundCount() == 500 - 336 - 1
+        candles.size() == 500
+        candles.first().contains(",1516327200,")
+        candles.last().contains(",1517225400,")
+    }
+}
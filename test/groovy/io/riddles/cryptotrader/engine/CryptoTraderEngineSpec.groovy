@@ -0,0 +1,416 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine
+
+import java.nio.file.Files
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.TimeUnit
+
+import io.riddles.cryptotrader.data.ChartSet
+import io.riddles.cryptotrader.game.CheckpointWriter
+import io.riddles.cryptotrader.game.player.CryptoTraderPlayer
+import io.riddles.cryptotrader.game.player.StrategyPlayer
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import io.riddles.cryptotrader.game.processor.CryptoTraderProcessor
+import io.riddles.cryptotrader.game.state.CryptoTraderState
+import io.riddles.javainterface.configuration.Configuration
+import io.riddles.javainterface.game.player.PlayerProvider
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.engine.CryptoTraderEngineSpec - Created on 18-10-26
+ *
+ * Matches driven the same way as the game loop. Settings that only change
+ * how moves are requested or how updates are delivered must not change
+ * the played game.
+ */
+class CryptoTraderEngineSpec extends Specification {
+
+    @Shared
+    ChartSet charts = CryptoTraderEngine.readDataFile("/data.csv", 1800)
+
+    def "test concurrent move collection"() {
+
+        when:
+        String sequentialGame = runMatch([moveCollection: "sequential"], createStrategies(3))
+        String concurrentGame = runMatch([moveCollection: "concurrent"], createStrategies(3))
+
+        then:
+        concurrentGame == sequentialGame
+    }
+
+    def "test concurrent move requests overlap"() {
+
+        setup:
+        CyclicBarrier barrier = new CyclicBarrier(3)
+        List<TradingStrategy> strategies = (0..<3).collect {
+            { barrier.await(10, TimeUnit.SECONDS); "pass" } as TradingStrategy
+        }
+
+        when: "each move request waits until all players are asked, for a few rounds"
+        runMatch([moveCollection: "concurrent", endTimestamp: 1516752000 + 1800 * 3], strategies)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "test concurrent move collection only for strategy players"() {
+
+        setup:
+        Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>())
+        PlayerProvider<CryptoTraderPlayer> playerProvider = new PlayerProvider<>()
+        (0..<2).each { id ->
+            playerProvider.add(new CryptoTraderPlayer(id) {
+                void sendSetting(String type, String value) {}
+                void sendSetting(String type, int value) {}
+                void sendUpdate(String type, String value) {}
+                void sendWarning(String message) {}
+
+                String requestMove(Enum moveType) {
+                    threadNames.add(Thread.currentThread().getName())
+                    return "pass"
+                }
+            })
+        }
+
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration()
+        configuration.putAll([moveCollection: "concurrent", endTimestamp: 1516752000 + 1800 * 3])
+        CryptoTraderEngine engine = new CryptoTraderEngine(playerProvider, new BacktestIOHandler(), this.charts,
+                CryptoTraderSettings.fromConfiguration(configuration))
+        CryptoTraderProcessor processor = engine.startProcessor()
+
+        when: "players that don't run in-process are asked like through the match wrapper"
+        CryptoTraderState state = engine.getInitialState()
+        int roundNumber = 0
+        while (!processor.hasGameEnded(state)) {
+            state = processor.createNextState(state, ++roundNumber)
+        }
+
+        then:
+        roundNumber > 0
+        threadNames == [Thread.currentThread().getName()] as Set
+    }
+
+    def "test warm-up history"() {
+
+        setup:
+        RecordingStrategy offStrategy = new RecordingStrategy()
+        RecordingStrategy rowsStrategy = new RecordingStrategy()
+        RecordingStrategy columnsStrategy = new RecordingStrategy()
+
+        when:
+        String offGame = runMatch([history: "off"], [offStrategy])
+        String rowsGame = runMatch([history: "rows"], [rowsStrategy])
+        String columnsGame = runMatch([history: "columns"], [columnsStrategy])
+        List<String> candles = offStrategy.updates.take(337).collect { it - "next_candles " }
+
+        then:
+        offStrategy.updates.take(337).every { it.startsWith("next_candles ") }
+        !offStrategy.settings.any { it.startsWith("history_format") }
+        rowsStrategy.settings.contains("history_format rows")
+        rowsStrategy.updates[0] == "history " + candles.join(";")
+        rowsStrategy.updates.tail() == offStrategy.updates.drop(337)
+        columnsStrategy.settings.contains("history_format columns")
+        toRows(columnsStrategy.updates[0] - "history ") == candles
+        columnsStrategy.updates.tail() == offStrategy.updates.drop(337)
+        rowsGame == offGame
+        columnsGame == offGame
+    }
+
+    def "test warm-up indicators"() {
+
+        setup:
+        RecordingStrategy offStrategy = new RecordingStrategy()
+        RecordingStrategy rowsStrategy = new RecordingStrategy()
+
+        when:
+        runMatch([indicators: "sma_3", history: "off"], [offStrategy])
+        runMatch([indicators: "sma_3", history: "rows"], [rowsStrategy])
+        List<String> warmUp = offStrategy.updates.take(337 * 2)
+
+        then: "each candle is directly followed by its indicators"
+        (0..<337).every { i ->
+            warmUp[i * 2].startsWith("next_candles ") && warmUp[i * 2 + 1].startsWith("indicators ") &&
+                    getTimestamp(warmUp[i * 2]) == getTimestamp(warmUp[i * 2 + 1])
+        }
+        rowsStrategy.updates[0].startsWith("history ")
+        rowsStrategy.updates[1] == warmUp.last()
+        rowsStrategy.updates.drop(2) == offStrategy.updates.drop(337 * 2)
+    }
+
+    def "test delta stacks updates"() {
+
+        setup:
+        RecordingStrategy fullStrategy = new RecordingStrategy(moves: createStrategies(1)[0])
+        RecordingStrategy deltaStrategy = new RecordingStrategy(moves: createStrategies(1)[0])
+
+        when:
+        String fullGame = runMatch([stacksUpdates: "full"], [fullStrategy])
+        String deltaGame = runMatch([stacksUpdates: "delta"], [deltaStrategy])
+        List<String> deltaStacks = deltaStrategy.updates.findAll { it.startsWith("stacks ") }
+
+        then:
+        deltaStrategy.settings.contains("stacks_updates delta")
+        !fullStrategy.settings.any { it.startsWith("stacks_updates") }
+        applyDeltas(deltaStrategy.updates) == fullStrategy.updates
+        fullStrategy.updates.count { it.startsWith("stacks ") } == 383
+        deltaStacks.size() < 383
+        deltaStacks.tail().any { parseStacks(it).size() < parseStacks(deltaStacks[0]).size() }
+        deltaGame == fullGame
+    }
+
+    def "test pass rounds"() {
+
+        setup:
+        int passRequests = 0
+        int skipRequests = 0
+        RecordingStrategy passStrategy = new RecordingStrategy(moves: { passRequests++; "pass" } as TradingStrategy)
+        RecordingStrategy skipStrategy = new RecordingStrategy(moves: { skipRequests++; "pass 12" } as TradingStrategy)
+
+        when:
+        String passGame = runMatch([:], [passStrategy])
+        String skipGame = runMatch([:], [skipStrategy])
+        List<String> passCandles = passStrategy.updates.findAll { it.startsWith("next_candles ") }
+        List<String> skipCandles = skipStrategy.updates.findAll { it.startsWith("next_candles ") }
+
+        then: "the candles of the rounds passed at the end of the match are never sent"
+        passRequests == 383
+        skipRequests == 32
+        skipCandles == passCandles.take(passCandles.size() - 10)
+        skipStrategy.updates.count { it.startsWith("stacks ") } == 32
+        skipGame == passGame
+    }
+
+    def "test pass rounds keep state history"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner(this.charts)
+        int round = 0
+        TradingStrategy strategy = { round++ % 2 == 0 ? "buy USDT_BTC 0.001" : "pass 5" } as TradingStrategy
+
+        when:
+        BacktestResult result = runner.run(strategy)
+        List<CryptoTraderState> states = result.getStates()
+
+        then:
+        result.getRoundCount() == 383
+        states.size() == 384
+        states.tail().every { it.getPlayerStates()[0].getStackValue() > 0 }
+        states.tail().collect { it.getPlayerStates()[0].getStackValue() }.unique().size() > 300
+    }
+
+    def "test resumed match"() {
+
+        setup:
+        File directory = Files.createTempDirectory("checkpoints").toFile()
+        Map<String, Object> settings = [
+                checkpointFile: new File(directory, "match.ckpt").getPath(),
+                checkpointInterval: 50
+        ]
+
+        when:
+        BacktestResult result = playMatch([:], [new TimedStrategy()], Integer.MAX_VALUE)
+        playMatch(settings, [new TimedStrategy()], 170)
+        BacktestResult resumedResult = playMatch(settings, [new TimedStrategy()], Integer.MAX_VALUE)
+
+        then: "the match continues after round 150"
+        resumedResult.getInitialState().getRoundNumber() == 150
+        resumedResult.getRoundCount() == 383 - 150
+        resumedResult.getScore() == result.getScore()
+        resumedResult.getScore() != 1000.0
+        resumedResult.getPlayedGame() == result.getPlayedGame()
+        directory.list().length == 0
+
+        cleanup:
+        directory.deleteDir()
+    }
+
+    def "test checkpoints need a played game writer"() {
+
+        setup:
+        File file = File.createTempFile("match", ".ckpt")
+        PlayerProvider<CryptoTraderPlayer> playerProvider = new PlayerProvider<>()
+        CryptoTraderEngine engine = new CryptoTraderEngine(playerProvider, new BacktestIOHandler(), this.charts,
+                CryptoTraderSettings.fromConfiguration(CryptoTraderEngine.createDefaultConfiguration()))
+        CryptoTraderProcessor processor = engine.startProcessor()
+
+        when:
+        processor.setCheckpointWriter(new CheckpointWriter(file))
+
+        then:
+        RuntimeException exception = thrown()
+        exception.message == "Checkpoints need a played game writer"
+
+        cleanup:
+        file.delete()
+    }
+
+    private String runMatch(Map<String, Object> settings, List<TradingStrategy> strategies) {
+        return playMatch(settings, strategies, Integer.MAX_VALUE).getPlayedGame()
+    }
+
+    /**
+     * Plays a match up to given round, like the game loop. A match that is
+     * stopped early is left as if the engine crashed, once its last
+     * checkpoint is written.
+     */
+    private BacktestResult playMatch(Map<String, Object> settings, List<TradingStrategy> strategies,
+                                     int lastRoundNumber) {
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration()
+        configuration.putAll(settings)
+
+        PlayerProvider<CryptoTraderPlayer> playerProvider = new PlayerProvider<>()
+        strategies.eachWithIndex { strategy, id -> playerProvider.add(new StrategyPlayer(id, strategy)) }
+
+        CryptoTraderEngine engine = new CryptoTraderEngine(playerProvider, new BacktestIOHandler(), this.charts,
+                CryptoTraderSettings.fromConfiguration(configuration))
+        CryptoTraderProcessor processor = engine.startProcessor()
+        playerProvider.getPlayers().each { engine.sendSettingsToPlayer(it) }
+
+        CryptoTraderState initialState = engine.getInitialState()
+        CryptoTraderState state = initialState
+        int roundNumber = 0
+
+        while (!processor.hasGameEnded(state) && roundNumber < lastRoundNumber) {
+            state = processor.createNextState(state, ++roundNumber)
+        }
+
+        if (!processor.hasGameEnded(state) && processor.getCheckpointWriter() != null) {
+            processor.getCheckpointWriter().@lastWrite?.get()
+        }
+
+        return new BacktestResult(engine, processor, initialState, state, roundNumber)
+    }
+
+    /**
+     * Returns strategies that each trade a different amount every few rounds
+     */
+    private static List<TradingStrategy> createStrategies(int count) {
+        return (0..<count).collect { id ->
+            int round = 0
+
+            return {
+                round++
+                switch (round % 4) {
+                    case 1: return "buy USDT_BTC 0.001"
+                    case 2: return "buy BTC_ETH 0.00" + (id + 1) + ";sell USDT_BTC 0.0001"
+                    case 3: return "sell USDT_ETH 0.000" + (id + 1)
+                    default: return "pass"
+                }
+            } as TradingStrategy
+        }
+    }
+
+    /**
+     * Turns delta stacks updates back into full ones, sent after the
+     * candles of every round like a full stacks update
+     */
+    private static List<String> applyDeltas(List<String> updates) {
+        List<String> fullUpdates = []
+        Map<String, String> stacks = [:]
+        boolean hasRoundStarted = false
+
+        updates.each { update ->
+            if (update.startsWith("stacks ")) {
+                stacks.putAll(parseStacks(update))
+                hasRoundStarted = true
+            } else if (hasRoundStarted && fullUpdates.last().startsWith("next_candles ")) {
+                fullUpdates.add(formatStacks(stacks)) // No stack changed in the previous round
+            }
+
+            fullUpdates.add(update.startsWith("stacks ") ? formatStacks(stacks) : update)
+        }
+
+        return fullUpdates
+    }
+
+    private static String getTimestamp(String update) {
+        return update.split(" ")[1].split(",")[1]
+    }
+
+    private static Map<String, String> parseStacks(String update) {
+        return (update - "stacks ").split(",").collectEntries { it.split(":") as List }
+    }
+
+    private static String formatStacks(Map<String, String> stacks) {
+        return "stacks " + stacks.collect { symbol, amount -> symbol + ":" + amount }.join(",")
+    }
+
+    /**
+     * Turns a history in columns into one next_candles message per timestamp
+     */
+    private static List<String> toRows(String history) {
+        List<List<String>> pairs = history.split(";").collect { pair ->
+            List<String> parts = pair.split("\\|") as List
+            return [parts[0]] + parts.tail().collect { it.split(",") as List }
+        }
+
+        return (0..<pairs[0][1].size()).collect { index ->
+            pairs.collect { pair -> ([pair[0]] + pair.tail().collect { it[index] }).join(",") }.join(";")
+        }
+    }
+
+    /**
+     * Trades on the time of the latest candle instead of counting its move
+     * requests, so it makes the same moves after it's restarted
+     */
+    private static class TimedStrategy implements TradingStrategy {
+
+        long timestamp
+
+        void onUpdate(String type, String value) {
+            if (type == "next_candles") {
+                this.timestamp = value.split(",")[1] as long
+            }
+        }
+
+        String onMoveRequest() {
+            switch ((this.timestamp.intdiv(1800) % 24) as int) {
+                case 1: return "buy USDT_BTC 0.001;buy BTC_ETH 0.002"
+                case 13: return "sell USDT_ETH 0.001"
+                default: return "pass"
+            }
+        }
+    }
+
+    /**
+     * Makes given moves, passing by default, and keeps the settings and
+     * updates it receives
+     */
+    private static class RecordingStrategy implements TradingStrategy {
+
+        TradingStrategy moves = { "pass" } as TradingStrategy
+        List<String> settings = []
+        List<String> updates = []
+
+        void onSetting(String type, String value) {
+            this.settings.add(type + " " + value)
+        }
+
+        void onUpdate(String type, String value) {
+            this.updates.add(type + " " + value)
+        }
+
+        String onMoveRequest() {
+            return this.moves.onMoveRequest()
+        }
+    }
+}
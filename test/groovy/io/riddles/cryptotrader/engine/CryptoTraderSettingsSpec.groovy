@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine
+
+import io.riddles.javainterface.configuration.Configuration
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.engine.CryptoTraderSettingsSpec - Created on 18-10-26
+ *
+ * Settings are resolved once from the engine configuration, and unknown
+ * values are rejected before a match starts.
+ */
+class CryptoTraderSettingsSpec extends Specification {
+
+    def "test default settings"() {
+
+        when:
+        CryptoTraderSettings settings = CryptoTraderSettings.fromConfiguration(
+                CryptoTraderEngine.createDefaultConfiguration())
+
+        then:
+        settings.getDataFile() == "/data.csv"
+        settings.getCandleInterval() == 1800
+        settings.getInitialStack() == 1000
+        settings.getGivenCandles() == 336
+        settings.getStartTimestamp() == -1
+        settings.getEndTimestamp() == -1
+        settings.getSubscribedPairs().isEmpty()
+        settings.getCandleAggregations().isEmpty()
+        settings.getTransactionFee() == new BigDecimal("0.002")
+        settings.getLedger() == CryptoTraderSettings.Ledger.DECIMAL
+        settings.getHistory() == CryptoTraderSettings.History.OFF
+        !settings.isPlayedGameStreamed()
+        !settings.isCheckpointEnabled()
+    }
+
+    def "test configured settings"() {
+
+        setup:
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration()
+        configuration.put("subscribedPairs", " USDT_BTC, ,BTC_ETH")
+        configuration.put("candleAggregations", "2,4")
+        configuration.put("ledger", "Fixed")
+        configuration.put("history", "columns")
+        configuration.put("playedGame", "stream")
+        configuration.put("stacksUpdates", "delta")
+
+        when:
+        CryptoTraderSettings settings = CryptoTraderSettings.fromConfiguration(configuration)
+        settings.getSubscribedPairs().add("USDT_ETH")
+
+        then:
+        settings.getSubscribedPairs() == ["USDT_BTC", "BTC_ETH"]
+        settings.getCandleAggregations() == [2, 4]
+        settings.getLedger() == CryptoTraderSettings.Ledger.FIXED
+        settings.getHistory() == CryptoTraderSettings.History.COLUMNS
+        settings.isPlayedGameStreamed()
+        settings.isStacksDeltaEnabled()
+        thrown(UnsupportedOperationException)
+    }
+
+    def "test timestamp settings"() {
+
+        setup:
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration()
+        configuration.put("startTimestamp", start)
+        configuration.put("endTimestamp", end)
+
+        when:
+        CryptoTraderSettings settings = CryptoTraderSettings.fromConfiguration(configuration)
+
+        then:
+        settings.getStartTimestamp() == 1516327200L
+        settings.getEndTimestamp() == 1516327200000L
+
+        where:
+        start        | end
+        1516327200   | 1516327200000L
+        1516327200L  | "1516327200000"
+        "1516327200" | new BigDecimal("1516327200000")
+    }
+
+    def "test candle aggregation settings"() {
+
+        setup:
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration()
+        configuration.put("candleAggregations", candleAggregations)
+
+        expect:
+        CryptoTraderSettings.fromConfiguration(configuration).getCandleAggregations() == expected
+
+        where:
+        candleAggregations | expected
+        ""                 | []
+        8                  | [8]
+        8L                 | [8]
+        48.0               | [48]
+        "8"                | [8]
+        " 8, 48 "          | [8, 48]
+    }
+
+    def "test invalid settings"() {
+
+        setup:
+        Configuration configuration = CryptoTraderEngine.createDefaultConfiguration()
+        configuration.putAll(values)
+
+        when:
+        CryptoTraderSettings.fromConfiguration(configuration)
+
+        then:
+        RuntimeException exception = thrown()
+        exception.message == message
+
+        where:
+        values                                                | message
+        [ledger: "float"]                                     | "Unknown ledger setting 'float'"
+        [history: "all"]                                      | "Unknown history setting 'all'"
+        [playedGame: "file"]                                  | "Unknown playedGame setting 'file'"
+        [candleAggregations: "2,x"]                           | "Can't parse candle aggregation 'x'"
+        [candleAggregations: 2.5]                             | "Can't parse candle aggregation '2.5'"
+        [checkpointFile: "match.ckpt", checkpointInterval: 0] | "checkpointInterval should be greater than 0"
+        [startTimestamp: "yesterday"]                         | "Can't parse startTimestamp 'yesterday'"
+    }
+}
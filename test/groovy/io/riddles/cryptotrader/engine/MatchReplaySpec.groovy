@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine
+
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.engine.MatchReplaySpec - Created on 18-10-26
+ *
+ * Replaying the orders of a played game gives the recorded stacks and
+ * score back, and other settings show up in the per-round differences.
+ */
+class MatchReplaySpec extends Specification {
+
+    def "test match replay"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        MatchReplay replay = new MatchReplay(runner.getCharts())
+        int round = 0
+        BacktestResult result = runner.run({
+            round++
+            round % 24 == 1 ? "buy USDT_BTC 0.001;buy USDT_ETH 0.01" : round % 24 == 13 ? "sell USDT_BTC 0.0009" : "pass"
+        } as TradingStrategy)
+        List<RecordedRound> rounds = MatchReplay.readPlayedGame(result.getPlayedGame())
+        StringWriter moveLog = new StringWriter()
+        MatchReplay.writeMoveLog(rounds, moveLog)
+
+        when:
+        ReplayResult result1 = replay.replay(rounds)
+        ReplayResult result2 = replay.replay(rounds, ["transactionFeePercent": 0.5])
+        ReplayResult result3 = replay.replay(MatchReplay.readMoveLog(new BufferedReader(new StringReader(moveLog.toString()))))
+
+        then:
+        rounds.size() == 383
+        result1.isEqual()
+        result1.getScore() == result.getScore()
+        result1.getRoundCount() == 383
+        !result2.isEqual()
+        result2.getDifferences()[0].getRoundNumber() == 1
+        result2.getScore() < result.getScore()
+        result3.isEqual()
+        result3.getScore() == result.getScore()
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.engine
+
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.engine.TournamentRunnerSpec - Created on 18-10-26
+ *
+ * Matches of a tournament run on a few threads over one dataset. A
+ * failing strategy only fails its own match, and every result is handed
+ * out once.
+ */
+class TournamentRunnerSpec extends Specification {
+
+    def "test tournament runner"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        TournamentRunner tournament = new TournamentRunner(runner, 2)
+        List<String> finished = []
+
+        tournament.add("pass", { "pass" } as TradingStrategy)
+        tournament.add("invalid", { "buy USDT_BTC 1000" } as TradingStrategy)
+        tournament.add("failing", { throw new IllegalStateException("failing") } as TradingStrategy)
+        tournament.add("fee", { "pass" } as TradingStrategy, [transactionFeePercent: 0.5])
+
+        when:
+        List<TournamentResult> results = tournament.run({ result -> finished.add(result.getName()) })
+        Map<String, TournamentResult> byName = results.collectEntries { [it.getName(), it] }
+
+        then:
+        results.size() == 4
+        finished.sort() == ["failing", "fee", "invalid", "pass"]
+        byName["pass"].getScore() == 1000.0
+        byName["pass"].getRoundCount() == 383
+        !byName["pass"].isFailed()
+        byName["invalid"].isBotDisqualified()
+        byName["invalid"].getScore() == 0.0
+        byName["failing"].isFailed()
+        byName["failing"].getException().getMessage() == "failing"
+        byName["fee"].getScore() == 1000.0
+        tournament.run().isEmpty()
+    }
+}
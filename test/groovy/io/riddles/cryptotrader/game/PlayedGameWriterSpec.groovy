@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game
+
+import io.riddles.cryptotrader.engine.BacktestResult
+import io.riddles.cryptotrader.engine.BacktestRunner
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.game.PlayedGameWriterSpec - Created on 18-10-26
+ *
+ * A streamed played game must be the same as one serialized at the end
+ * of the match, while the initial state only keeps the latest state.
+ */
+class PlayedGameWriterSpec extends Specification {
+
+    def "test streamed played game"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        int round = 0
+        TradingStrategy strategy = {
+            round++
+            round % 10 == 1 ? "buy USDT_BTC 0.001" : round % 10 == 6 ? "sell USDT_BTC 0.0005" : "pass"
+        } as TradingStrategy
+
+        when:
+        BacktestResult memoryResult = runner.run(strategy, ["playedGame": "memory"])
+        round = 0
+        BacktestResult streamResult = runner.run(strategy, ["playedGame": "stream"])
+        String playedGame = streamResult.getPlayedGame()
+
+        then:
+        playedGame == memoryResult.getPlayedGame()
+        streamResult.getPlayedGame().is(playedGame)
+        streamResult.getScore() == memoryResult.getScore()
+        streamResult.getInitialState().getNextState().is(streamResult.getFinalState())
+        memoryResult.getStates().size() == 384
+
+        when:
+        streamResult.getStates()
+
+        then:
+        RuntimeException ex = thrown()
+        ex.getMessage() == "States are not kept when the played game is streamed"
+    }
+}
@@ -20,6 +20,8 @@
 package io.riddles.cryptotrader.game.move
 
 import io.riddles.cryptotrader.data.Chart
+import io.riddles.cryptotrader.data.ChartSet
+import io.riddles.cryptotrader.data.CsvChartReader
 import io.riddles.cryptotrader.engine.CryptoTraderEngine
 import io.riddles.javainterface.game.player.PlayerProvider
 import io.riddles.javainterface.io.FileIOHandler
@@ -54,11 +56,15 @@ class CryptoTraderMoveDeserializerSpec extends Specification {
         CryptoTraderMove move7 = moveDeserializer.traverse("buy USDT_BTC 0.1; sell USDT_ETH 2", date)
         CryptoTraderMove move8 = moveDeserializer.traverse("buy USDT_BTC -1", date)
         CryptoTraderMove move9 = moveDeserializer.traverse("buy USDT_BTC 0.1;buy BTC_ETH 0.5;sell USDT_ETH 0.5;buy USDT_BTC 0.1", date)
+        CryptoTraderMove move10 = moveDeserializer.traverse("pass 12", date)
+        CryptoTraderMove move11 = moveDeserializer.traverse("pass 0", date)
+        CryptoTraderMove move12 = moveDeserializer.traverse("pass wrong", date)
 
         then:
         move1.isInvalid()
         move1.getException().getMessage() == "Invalid input: Order doesn't split into 3 parts"
         move2.getOrders().isEmpty()
+        move2.getPassRounds() == 1
         move3.isInvalid()
         move3.getException().getMessage() == "Invalid input: Can't parse order type 'wrong'"
         move4.isInvalid()
@@ -72,5 +78,68 @@ class CryptoTraderMoveDeserializerSpec extends Specification {
         move8.getException().getMessage() == "Invalid input: Amount must be greater than 0"
         move9.isInvalid()
         move9.getException().getMessage() == "Invalid input: Can't have more than one order per pair"
+        move10.getOrders().isEmpty()
+        move10.getPassRounds() == 12
+        move11.isInvalid()
+        move11.getException().getMessage() == "Invalid input: Pass rounds must be greater than 0"
+        move12.isInvalid()
+        move12.getException().getMessage() == "Invalid input: Can't parse pass rounds 'wrong'"
+    }
+
+    def "test move deserializer edge cases"() {
+
+        setup:
+        ChartSet charts = new CsvChartReader(1800).read(getClass().getResourceAsStream("/data.csv"))
+        CryptoTraderMoveDeserializer moveDeserializer = new CryptoTraderMoveDeserializer(charts)
+
+        when:
+        CryptoTraderMove move = moveDeserializer.traverse(input, new Date(1516147200))
+
+        then:
+        move.isInvalid() == (message != null)
+        move.isInvalid() || move.getOrders()*.getAmount() == amounts
+        !move.isInvalid() || move.getException().getMessage() == "Invalid input: " + message
+
+        where:
+        input                                      | amounts                                     | message
+        "PASS"                                     | []                                          | null
+        " buy USDT_BTC 0.1 ;;"                     | [new BigDecimal("0.1")]                     | null
+        "Sell USDT_BTC 1E-3"                       | [new BigDecimal("0.001")]                   | null
+        "buy USDT_BTC 123456789.0123456789"        | [new BigDecimal("123456789.0123456789")]    | null
+        "buy USDT_BTC 0.0000001"                   | null                                        | "Amount must be greater than 0"
+        "buy USDT_BTC 0.012345678901234567"        | [new BigDecimal("0.012345678901234567")]    | null
+        "buy USDT_BTC 0.0123456789012345678901"    | null                                        | "Amount can't have more than 18 decimals"
+        "buy USDT_BTC 12.123456789012345678"       | null                                        | "Amount has too many digits"
+        "buy USDT_BTC 1E+19"                       | null                                        | "Amount has too many digits"
+        "buy USDT_BTC 1."                          | [new BigDecimal("1")]                       | null
+        "buy USDT_BTC ."                           | null                                        | "Can't parse amount '.'"
+        "buy USDT_BTC 1.2.3"                       | null                                        | "Can't parse amount '1.2.3'"
+        "buy USDT_BTC  0.1"                        | null                                        | "Order doesn't split into 3 parts"
+        ";buy USDT_BTC 0.1"                        | null                                        | "Order doesn't split into 3 parts"
+        "buy USDT_BTC 0.1;buy usdt_btc 0.1"        | null                                        | "Unknown pair 'usdt_btc'"
+        "buy USDT_BTC 0.1;sell BTC_ETH 1;pass"     | null                                        | "Order doesn't split into 3 parts"
+        "pass 2 3"                                 | null                                        | "Unknown pair '2'"
+    }
+
+    def "test duplicate pairs beyond the first 64"() {
+
+        setup:
+        StringBuilder csv = new StringBuilder("pair,date,high,low,open,close,volume\n")
+        (0..<100).each { i -> csv.append("USDT_S${i},1516147200,1,1,1,1,1\n") }
+        ChartSet charts = new CsvChartReader(1800).read(new ByteArrayInputStream(csv.toString().bytes))
+        CryptoTraderMoveDeserializer moveDeserializer = new CryptoTraderMoveDeserializer(charts)
+
+        when:
+        CryptoTraderMove move = moveDeserializer.traverse(input, new Date(1516147200))
+
+        then:
+        move.isInvalid() == (message != null)
+        !move.isInvalid() || move.getException().getMessage() == "Invalid input: " + message
+
+        where:
+        input                                                    | message
+        "buy USDT_S70 1;buy USDT_S99 1;buy USDT_S5 1"            | null
+        "buy USDT_S70 1;buy USDT_S99 1;sell USDT_S70 1"          | "Can't have more than one order per pair"
+        "buy USDT_S6 1;buy USDT_S70 1;sell USDT_S6 1"            | "Can't have more than one order per pair"
     }
 }
@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.state
+
+import java.util.logging.Handler
+import java.util.logging.LogRecord
+
+import io.riddles.cryptotrader.data.FixedPoint
+import io.riddles.cryptotrader.engine.BacktestResult
+import io.riddles.cryptotrader.engine.BacktestRunner
+import io.riddles.cryptotrader.engine.CryptoTraderEngine
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * io.riddles.cryptotrader.game.state.FixedPointLedgerSpec - Created on 18-10-26
+ *
+ * Matches on the fixed-point ledger must give exactly the same stacks,
+ * rejected moves and score as matches on the BigDecimal stacks.
+ */
+class FixedPointLedgerSpec extends Specification {
+
+    @Shared
+    BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+
+    @Unroll
+    def "test fixed-point ledger parity for #name"() {
+
+        when:
+        BacktestResult decimal = runner.run(createStrategy(moves), ["ledger": "decimal"])
+        BacktestResult fixed = runner.run(createStrategy(moves), ["ledger": "fixed"])
+        BacktestResult crossCheck = runner.run(createStrategy(moves), ["ledger": "crosscheck"])
+
+        then:
+        fixed.getScore() == decimal.getScore()
+        fixed.getRoundCount() == decimal.getRoundCount()
+        fixed.isBotDisqualified() == decimal.isBotDisqualified()
+        fixed.getPlayedGame() == decimal.getPlayedGame()
+        crossCheck.getScore() == decimal.getScore()
+        decimal.getScore() == score
+
+        where:
+        name            | moves                                                        | score
+        "small orders"  | ["buy USDT_BTC 0.00123456789", "buy BTC_ETH 0.005;sell USDT_BTC 0.0001", "pass",
+                           "sell USDT_ETH 0.001", "sell BTC_ETH 0.002;buy USDT_ETH 0.003", "pass", "pass"] | 966.96
+        "whole stacks"  | ["buy USDT_ETH 0.3", "sell USDT_ETH ETH", "buy USDT_BTC 0.05", "sell USDT_BTC BTC"] | 663.77
+        "too big order" | ["buy USDT_BTC 0.01", "sell USDT_BTC 0.02"]                   | 0.0
+        "long amount"   | ["buy USDT_BTC 0.0123456789012345678901"]                    | 0.0
+        "huge order"    | ["buy USDT_BTC 999999999999999999"]                         | 0.0
+    }
+
+    def "test cross check logs ledger differences"() {
+
+        setup:
+        List<String> warnings = []
+        Handler handler = new Handler() {
+            void publish(LogRecord record) { warnings.add(record.getMessage()) }
+            void flush() {}
+            void close() {}
+        }
+        CryptoTraderEngine.LOGGER.addHandler(handler)
+        List<String> moves = ["buy USDT_BTC 0.012345678901234567", "sell USDT_BTC 0.002345678901234567", "pass"]
+
+        when: "the ledger drops the digits of the sell beyond 1e-26"
+        BacktestResult decimal = runner.run(createStrategy(moves), ["ledger": "decimal"])
+        BacktestResult crossCheck = runner.run(createStrategy(moves), ["ledger": "crosscheck"])
+
+        then:
+        crossCheck.getScore() == decimal.getScore()
+        crossCheck.getPlayedGame() == decimal.getPlayedGame()
+        warnings == ["Player 0: Ledger USDT stack 894.53124372615359459870986077000 " +
+                             "differs from stacks value 894.53124372615359459870986076970"]
+
+        cleanup:
+        CryptoTraderEngine.LOGGER.removeHandler(handler)
+    }
+
+    def "test multiply split"() {
+
+        setup:
+        long[] result = new long[2]
+
+        expect:
+        FixedPoint.multiplySplit(123456789L, 987654321L, 20, result)
+        result[0] == 121932
+        result[1] == 631112635269000000L
+        !FixedPoint.multiplySplit(1L, 1L, 27, result)
+        result[0] == 0
+        result[1] == 0
+        FixedPoint.multiplySplit(3L, 7L, 0, result)
+        result[0] == 21 * FixedPoint.ONE
+        result[1] == 0
+    }
+
+    /**
+     * Plays given moves in a loop, where a symbol as amount is replaced by
+     * the whole stack of that symbol
+     */
+    private static TradingStrategy createStrategy(List<String> moves) {
+        Map<String, String> stacks = [:]
+        int round = 0
+
+        return new TradingStrategy() {
+            void onUpdate(String type, String value) {
+                if (type != "stacks") return
+
+                value.split(",").each {
+                    String[] stack = it.split(":")
+                    stacks[stack[0]] = stack[1]
+                }
+            }
+
+            String onMoveRequest() {
+                String move = moves[round++ % moves.size()]
+
+                return move.replaceAll(/ ([A-Z]+)$/) { all, symbol -> " " + stacks[symbol] }
+            }
+        }
+    }
+}
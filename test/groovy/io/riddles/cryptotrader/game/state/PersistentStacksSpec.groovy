@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.game.state
+
+import io.riddles.cryptotrader.data.Chart
+import io.riddles.cryptotrader.data.SymbolRegistry
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.game.state.PersistentStacksSpec - Created on 18-10-26
+ *
+ * Setting a stack returns new stacks that share everything but the changed
+ * path, and leaves the previous stacks as they were.
+ */
+class PersistentStacksSpec extends Specification {
+
+    def "test set keeps previous stacks"() {
+
+        setup:
+        SymbolRegistry symbols = createSymbols(100)
+        PersistentStacks stacks = new PersistentStacks(symbols, createStacks(101))
+
+        when:
+        PersistentStacks next = stacks.set(70, BigDecimal.ONE)
+
+        then:
+        !next.is(stacks)
+        next.get(70) == BigDecimal.ONE
+        stacks.get(70) == new BigDecimal(70)
+        (0..<101).every { id -> id == 70 || next.get(id).is(stacks.get(id)) }
+        next.size() == 101
+        next.getSymbols().is(symbols)
+    }
+
+    def "test for each changed"() {
+
+        setup:
+        PersistentStacks stacks = new PersistentStacks(createSymbols(100), createStacks(101))
+        PersistentStacks next = stacks
+        changedIds.each { id -> next = next.set(id, BigDecimal.TEN) }
+        List<Integer> reported = []
+
+        when:
+        next.forEachChanged(stacks, { id -> reported.add(id) })
+
+        then:
+        reported == changedIds.toSorted()
+
+        where:
+        changedIds   | _
+        []           | _
+        [0]          | _
+        [100]        | _
+        [64, 3, 31]  | _
+        [32, 31, 99] | _
+    }
+
+    def "test to map"() {
+
+        setup:
+        SymbolRegistry symbols = createSymbols(2)
+        PersistentStacks stacks = new PersistentStacks(symbols, createStacks(3))
+                .set(symbols.getSymbolId(SymbolRegistry.USDT), new BigDecimal("1000"))
+
+        expect:
+        stacks.toMap() == [USDT: new BigDecimal("1000"), S0: new BigDecimal(symbols.getSymbolId("S0")),
+                           S1: new BigDecimal(symbols.getSymbolId("S1"))]
+    }
+
+    def "test missing stacks"() {
+
+        when:
+        new PersistentStacks(createSymbols(2), createStacks(2))
+
+        then:
+        RuntimeException exception = thrown()
+        exception.message == "Stacks should have a value for every symbol"
+    }
+
+    private static SymbolRegistry createSymbols(int count) {
+        LinkedHashMap<String, Chart> charts = new LinkedHashMap<>()
+
+        (0..<count).each { i ->
+            String pair = "USDT_S" + i
+            charts.put(pair, new Chart(pair, ["date", "close"] as String[], 1800))
+        }
+
+        return new SymbolRegistry(charts)
+    }
+
+    private static BigDecimal[] createStacks(int count) {
+        BigDecimal[] stacks = new BigDecimal[count]
+        (0..<count).each { id -> stacks[id] = new BigDecimal(id) }
+        return stacks
+    }
+}
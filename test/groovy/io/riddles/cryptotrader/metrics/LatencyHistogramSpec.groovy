@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2018 riddles.io (developers@riddles.io)
+ *
+ *      Licensed under the Apache License, Version 2.0 (the "License");
+ *      you may not use this file except in compliance with the License.
+ *      You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *      Unless required by applicable law or agreed to in writing, software
+ *      distributed under the License is distributed on an "AS IS" BASIS,
+ *      WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *      See the License for the specific language governing permissions and
+ *      limitations under the License.
+ *
+ *      For the full copyright and license information, please view the LICENSE
+ *      file that was distributed with this source code.
+ */
+
+package io.riddles.cryptotrader.metrics
+
+import io.riddles.cryptotrader.engine.BacktestRunner
+import io.riddles.cryptotrader.game.player.TradingStrategy
+import org.json.JSONObject
+import spock.lang.Specification
+
+/**
+ * io.riddles.cryptotrader.metrics.LatencyHistogramSpec - Created on 18-10-26
+ *
+ * Percentiles of the log-linear buckets stay within a few percent of the
+ * exact values, and the played game only gets a metrics section when
+ * metrics are on.
+ */
+class LatencyHistogramSpec extends Specification {
+
+    def "test histogram percentiles"() {
+
+        setup:
+        LatencyHistogram histogram = new LatencyHistogram()
+        (1..100000).each { histogram.record(it * 1000L) }
+
+        expect:
+        histogram.getCount() == 100000
+        histogram.getTotal() == 1000L * 100000 * 100001 / 2
+        Math.abs(histogram.getPercentile(fraction) - expected) <= expected * 0.03
+
+        where:
+        fraction | expected
+        0.5      | 50000000
+        0.9      | 90000000
+        0.99     | 99000000
+        0.999    | 99900000
+    }
+
+    def "test histogram extremes"() {
+
+        setup:
+        LatencyHistogram histogram = new LatencyHistogram()
+        LatencyHistogram other = new LatencyHistogram()
+        histogram.record(-5)
+        histogram.record(7)
+        other.record(123456789)
+
+        when:
+        histogram.add(other)
+        JSONObject json = histogram.toJson()
+
+        then:
+        histogram.getCount() == 3
+        histogram.getPercentile(0.0) == 0
+        histogram.getPercentile(0.5) == 7
+        histogram.getPercentile(1.0) == 123456789
+        json.getDouble("minUs") == 0.0
+        json.getDouble("maxUs") == 123456.789
+        new LatencyHistogram().toJson().keySet() == ["count", "totalMs"] as Set
+    }
+
+    def "test match metrics section"() {
+
+        setup:
+        BacktestRunner runner = new BacktestRunner("/data.csv", 1800)
+        TradingStrategy passStrategy = { "pass" } as TradingStrategy
+
+        when:
+        JSONObject game = new JSONObject(runner.run(passStrategy, [metrics: metrics]).getPlayedGame())
+
+        then:
+        game.has("metrics") == (metrics == "on")
+        metrics == "off" || game.getJSONObject("metrics").getJSONObject("round").getLong("count") == 383
+        metrics == "off" || game.getJSONObject("metrics").getJSONObject("serialization").getLong("count") == 1
+
+        where:
+        metrics | _
+        "off"   | _
+        "on"    | _
+    }
+}